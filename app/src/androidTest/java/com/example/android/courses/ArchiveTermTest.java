@@ -0,0 +1,105 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.Arrays;
+
+/**
+ * Archiving a term: its courses move out of the current database into a file of their own,
+ * which reads back by term name, alone or together with the current courses.
+ */
+public class ArchiveTermTest extends CourseProviderTestCase {
+
+    public void testArchiveMovesTheCoursesIntoTheTerm() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(3));
+        assertEquals(3, archive("fall-2016"));
+
+        assertEquals(0, count(CourseEntry.CONTENT_URI));
+        assertEquals(Arrays.asList("fall-2016"), Arrays.asList(terms()));
+        assertEquals(3, count(inTerm("fall-2016")));
+    }
+
+    public void testNewCoursesCanTakeTheArchivedCoursesKeys() {
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"));
+        assertEquals(1, archive("fall-2016"));
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra", "C7", "Jones", "9:00-10:30", "Monday"));
+
+        assertEquals(2, count(inTerm("fall-2016," + CourseContract.TERM_CURRENT)));
+        assertEquals("C7", queryString(CourseEntry.CONTENT_URI, CourseEntry.COLUMN_COURSE_ROOM));
+        assertEquals("B12", queryString(inTerm("fall-2016"), CourseEntry.COLUMN_COURSE_ROOM));
+    }
+
+    public void testArchivingATermTwiceIsRejected() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(2));
+        assertEquals(2, archive("fall-2016"));
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(1));
+        try {
+            archive("fall-2016");
+            fail("fall-2016 archived twice");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(1, count(CourseEntry.CONTENT_URI));
+        assertEquals(2, count(inTerm("fall-2016")));
+    }
+
+    public void testArchivingNoCoursesCreatesNoTerm() {
+        assertEquals(0, archive("fall-2016"));
+        assertEquals(0, terms().length);
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(1));
+        assertEquals(1, archive("fall-2016"));
+    }
+
+    public void testArchiveWrittenBeforeItsDeleteCommittedIsThrownAway() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(2));
+        writePendingArchive("fall-2016", 1);//the process died before the courses left the current database
+        assertEquals(0, terms().length);
+        assertEquals(2, count(CourseEntry.CONTENT_URI));
+        assertEquals(2, archive("fall-2016"));
+    }
+
+    public void testArchiveWrittenAfterItsDeleteCommittedBecomesTheTerm() {
+        writePendingArchive("fall-2016", 7);//the process died before renaming the archive
+        assertEquals(Arrays.asList("fall-2016"), Arrays.asList(terms()));
+        assertEquals(1, count(inTerm("fall-2016")));
+    }
+
+    /** What a process that died in the middle of archiving term leaves behind, one course with this id */
+    private void writePendingArchive(String term, long id) {
+        CourseDbHelper helper = new CourseDbHelper(getMockContext(), term + ".pending");
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            ContentValues name = new ContentValues();
+            name.put(CourseDbHelper.COLUMN_NAME, "B12");
+            long room = db.insertOrThrow(CourseDbHelper.ROOMS_TABLE, null, name);
+            name.put(CourseDbHelper.COLUMN_NAME, "Smith");
+            long teacher = db.insertOrThrow(CourseDbHelper.TEACHERS_TABLE, null, name);
+            ContentValues course = new ContentValues();
+            course.put(CourseEntry._ID, id);
+            course.put(CourseEntry.COLUMN_COURSE_NAME, "Algebra");
+            course.put(CourseDbHelper.COLUMN_ROOM_ID, room);
+            course.put(CourseDbHelper.COLUMN_TEACHER_ID, teacher);
+            course.put(CourseEntry.COLUMN_COURSE_TIME, "9:00-10:30");
+            course.put(CourseEntry.COLUMN_COURSE_DAY, "Monday");
+            db.insertOrThrow(CourseDbHelper.COURSE_ROWS_TABLE, null, course);
+        } finally {
+            helper.close();
+        }
+    }
+
+    private int archive(String term) {
+        return getProvider().call(CourseContract.METHOD_ARCHIVE_TERM, term, null)
+                .getInt(CourseContract.ARCHIVE_ROWS);
+    }
+
+    private String[] terms() {
+        return getProvider().call(CourseContract.METHOD_TERMS, null, null).getStringArray(CourseContract.TERMS);
+    }
+
+    private static Uri inTerm(String terms) {
+        return CourseEntry.CONTENT_URI.buildUpon().appendQueryParameter(CourseEntry.PARAM_TERM, terms).build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/** bulkInsert() writes a whole schedule in one transaction and notifies once */
+public class BulkInsertTest extends CourseProviderTestCase {
+
+    public void testInsertsEveryCourse() {
+        assertEquals(1000, resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(1000)));
+        assertEquals(1000, count(CourseEntry.CONTENT_URI));
+    }
+
+    public void testNotifiesOnce() {
+        resetMetrics();
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(250));
+        assertEquals(1, notifications(CourseEntry.CHANGE_INSERT));
+    }
+
+    public void testInvalidCourseInsertsNothing() {
+        ContentValues[] values = courses(100);
+        values[99].remove(CourseEntry.COLUMN_COURSE_NAME);
+        resetMetrics();
+        try {
+            resolver().bulkInsert(CourseEntry.CONTENT_URI, values);
+            fail("A course without a name was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, count(CourseEntry.CONTENT_URI));
+        assertEquals(0, notifications(CourseEntry.CHANGE_INSERT));
+    }
+
+    public void testConflictRollsBackTheBatch() {
+        ContentValues[] values = courses(10);
+        values[9].put(CourseEntry.COLUMN_COURSE_ROOM, "Room 0");//same room, day and time as the first
+        try {
+            resolver().bulkInsert(CourseEntry.CONTENT_URI, values);
+            fail("A double booked room was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, count(CourseEntry.CONTENT_URI));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Readers under write-ahead logging: while one thread keeps writing big batches, lookups on
+ * other threads neither fail nor wait for a batch to commit, their latency stays close to
+ * what it is with no writer at all.
+ */
+public class ConcurrentReadTest extends CourseProviderTestCase {
+
+    private static final String LOG_TAG = ConcurrentReadTest.class.getSimpleName();
+
+    private static final int READERS = 3;
+    private static final int BATCHES = 8;
+    private static final int BATCH_SIZE = 2000;
+    /** Reads each reader makes for the baseline without a writer */
+    private static final int IDLE_READS = 200;
+
+    private Uri mCourse;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCourse = resolver().insert(CourseEntry.CONTENT_URI,
+                course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"));
+    }
+
+    public void testReadLatencyStaysFlatDuringWrites() throws Exception {
+        long[] idle = readWhile(null);
+        List<Long> batches = new ArrayList<>();
+        long[] busy = readWhile(batches);
+
+        Collections.sort(batches);
+        long batchMedian = batches.get(batches.size() / 2);
+        Log.i(LOG_TAG, "idle reads " + percentiles(idle) + ", reads during writes " + percentiles(busy) +
+                ", median write batch " + millis(batchMedian) + " ms");
+
+        assertEquals(1 + BATCHES * BATCH_SIZE, count(CourseEntry.CONTENT_URI));
+        // a reader blocked by the writer would wait out a whole batch commit
+        assertTrue("p99 read " + millis(percentile(busy, 99)) + " ms against batches of " +
+                millis(batchMedian) + " ms", percentile(busy, 99) < batchMedian / 2);
+        assertTrue("p50 read " + millis(percentile(busy, 50)) + " ms against " +
+                        millis(percentile(idle, 50)) + " ms idle",
+                percentile(busy, 50) < Math.max(10 * percentile(idle, 50), 5000000L));
+    }
+
+    /**
+     * Read latencies, in nanoseconds, of READERS threads looking up one course. With batches
+     * null they make IDLE_READS reads each, otherwise they read until a writer has committed
+     * BATCHES bulk inserts, renaming the course read after each, whose durations are added to batches.
+     */
+    private long[] readWhile(final List<Long> batches) throws InterruptedException {
+        final AtomicBoolean writing = new AtomicBoolean(batches != null);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(READERS);
+        final List<long[]> latencies = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            final long[] mine = new long[batches == null ? IDLE_READS : 100000];
+            latencies.add(mine);
+            threads.add(new Thread("reader " + r) {
+                @Override
+                public void run() {
+                    try {
+                        started.countDown();
+                        for (int i = 0; i < mine.length && (batches == null || writing.get()); i++) {
+                            long start = System.nanoTime();
+                            Cursor cursor = resolver().query(mCourse, null, null, null, null);
+                            try {
+                                assertTrue(cursor.moveToFirst());
+                            } finally {
+                                cursor.close();
+                            }
+                            mine[i] = System.nanoTime() - start + 1;//0 marks a read never made
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        if (batches != null) {
+            started.await();
+            try {
+                for (int b = 0; b < BATCHES; b++) {
+                    ContentValues[] values = new ContentValues[BATCH_SIZE];
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        values[i] = course("Course " + b + "-" + i, "Room " + b + "-" + i,
+                                "Teacher " + b + "-" + i, "9:00-10:30", "Monday");
+                    }
+                    long start = System.nanoTime();
+                    assertEquals(BATCH_SIZE, resolver().bulkInsert(CourseEntry.CONTENT_URI, values));
+                    batches.add(System.nanoTime() - start);
+
+                    ContentValues rename = new ContentValues();
+                    rename.put(CourseEntry.COLUMN_COURSE_NAME, "Renamed " + b);
+                    assertEquals(1, resolver().update(mCourse, rename, null, null));
+                }
+            } finally {
+                writing.set(false);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        int reads = 0;
+        for (long[] mine : latencies) {
+            for (long latency : mine) {
+                reads += latency > 0 ? 1 : 0;
+            }
+        }
+        long[] all = new long[reads];
+        int i = 0;
+        for (long[] mine : latencies) {
+            for (long latency : mine) {
+                if (latency > 0) {
+                    all[i++] = latency;
+                }
+            }
+        }
+        assertTrue("No reads were made", all.length > 0);
+        Arrays.sort(all);
+        return all;
+    }
+
+    /** The p-th percentile of sorted latencies */
+    private static long percentile(long[] sorted, int p) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+    }
+
+    private static String percentiles(long[] sorted) {
+        return sorted.length + " p50/p95/p99 " + millis(percentile(sorted, 50)) + "/" +
+                millis(percentile(sorted, 95)) + "/" + millis(percentile(sorted, 99)) + " ms";
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(nanos / 1000 / 1000.0);
+    }
+}
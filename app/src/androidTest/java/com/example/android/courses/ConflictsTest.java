@@ -0,0 +1,73 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/** Double bookings of a room or teacher are rejected, back to back and other-day courses are not */
+public class ConflictsTest extends CourseProviderTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        // one long course first, then short ones later in the day that start after each other
+        assertNotNull(resolver().insert(CourseEntry.CONTENT_URI,
+                course("Marathon", "Hall", "Pheidippides", "7:00-20:00", "Monday")));
+        ContentValues[] values = new ContentValues[500];
+        for (int i = 0; i < values.length; i++) {
+            int start = 8 * 60 + i;
+            values[i] = course("Course " + i, "Room " + i, "Teacher " + i,
+                    time(start) + "-" + time(start + 1), "Monday");
+        }
+        assertEquals(values.length, resolver().bulkInsert(CourseEntry.CONTENT_URI, values));
+    }
+
+    public void testLongCourseBlocksItsRoomAllDay() {
+        assertRejected(course("Late", "Hall", "Someone", "19:00-19:30", "Monday"));
+        assertRejected(course("Early", "hall ", "Someone", "6:30-7:30", "Monday"));//room names ignore case and spaces
+    }
+
+    public void testLongCourseBlocksItsTeacher() {
+        assertRejected(course("Lecture", "Annex", "Pheidippides", "12:00-13:00", "Monday"));
+    }
+
+    public void testBackToBackIsNoConflict() {
+        assertNotNull(resolver().insert(CourseEntry.CONTENT_URI,
+                course("Before", "Hall", "Someone", "6:00-7:00", "Monday")));
+        assertNotNull(resolver().insert(CourseEntry.CONTENT_URI,
+                course("After", "Hall", "Someone", "20:00-21:00", "Monday")));
+    }
+
+    public void testOtherDayIsNoConflict() {
+        assertNotNull(resolver().insert(CourseEntry.CONTENT_URI,
+                course("Tuesday", "Hall", "Pheidippides", "12:00-13:00", "Tuesday")));
+    }
+
+    public void testShortCoursesConflictWithEachOther() {
+        assertRejected(course("Overlap", "Room 250", "Someone", time(8 * 60 + 250) + "-" + time(9 * 60 + 250), "Monday"));
+        assertRejected(course("Overlap", "Elsewhere", "Teacher 499", time(8 * 60 + 499) + "-16:30", "Monday"));
+    }
+
+    public void testConflictQueriesSeeCommittedWritesOnly() {
+        assertEquals(0, count(CourseEntry.CONFLICTS_URI));
+        assertRejected(course("Late", "Hall", "Someone", "19:00-19:30", "Monday"));
+        assertEquals(0, count(CourseEntry.CONFLICTS_URI));//the rejected course rolled back
+
+        resolver().insert(CourseEntry.CONTENT_URI.buildUpon()
+                .appendQueryParameter(CourseEntry.PARAM_ALLOW_CONFLICTS, "true").build(),
+                course("Late", "Hall", "Someone", "19:00-19:30", "Monday"));
+        assertEquals(1, count(CourseEntry.CONFLICTS_URI));
+    }
+
+    private void assertRejected(ContentValues course) {
+        try {
+            resolver().insert(CourseEntry.CONTENT_URI, course);
+            fail("Double booking accepted: " + course);
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static String time(int minute) {
+        return minute / 60 + ":" + (minute % 60 < 10 ? "0" : "") + minute % 60;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.android.courses;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/** Patching edited courses into the catalog's pages, which stay sorted by name then id */
+public class CourseListTest extends TestCase {
+
+    public void testRenamedCourseMovesToItsSortedPosition() throws IOException {
+        CourseList loaded = list(1, "Algebra", 2, "Biology", 3, "Chemistry", 4, "Drama");
+        CourseList updated = loaded.update(list(1, "Calculus"), false);
+        assertEquals("2 Biology, 1 Calculus, 3 Chemistry, 4 Drama", describe(updated));
+    }
+
+    public void testEqualNamesSortById() throws IOException {
+        CourseList loaded = list(1, "Art", 5, "Art", 7, "Zoology");
+        assertEquals("1 Art, 3 Art, 5 Art, 7 Zoology", describe(loaded.update(list(3, "Art"), false)));
+    }
+
+    public void testCourseRenamedPastTheLastPageIsLeftForTheNextPage() throws IOException {
+        CourseList loaded = list(1, "Algebra", 2, "Biology", 3, "Chemistry");
+        CourseList updated = loaded.update(list(1, "Zoology"), false);
+        assertEquals("2 Biology, 3 Chemistry", describe(updated));
+        // the next page is read after the new last course, so it brings the renamed one
+        assertEquals("Chemistry", updated.getName(updated.size() - 1));
+    }
+
+    public void testCourseRenamedPastTheEndStaysWhenEverythingIsLoaded() throws IOException {
+        CourseList loaded = list(1, "Algebra", 2, "Biology");
+        assertEquals("2 Biology, 1 Zoology", describe(loaded.update(list(1, "Zoology"), true)));
+    }
+
+    public void testCourseRenamedIntoTheLoadedRangeJoinsIt() throws IOException {
+        CourseList loaded = list(1, "Algebra", 2, "Chemistry");
+        assertEquals("1 Algebra, 9 Biology, 2 Chemistry", describe(loaded.update(list(9, "Biology"), false)));
+    }
+
+    public void testRoomChangeKeepsThePosition() throws IOException {
+        CourseList loaded = list(1, "Algebra", 2, "Biology");
+        CourseList updated = loaded.update(list(1, "Algebra"), false);
+        assertEquals("1 Algebra, 2 Biology", describe(updated));
+        assertEquals("Room 1 moved", updated.getRoom(0));
+    }
+
+    /** a list of id, name pairs, each course in "Room <id> moved" */
+    private static CourseList list(Object... idsAndNames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(idsAndNames.length / 2);
+        for (int i = 0; i < idsAndNames.length; i += 2) {
+            out.writeLong(((Integer) idsAndNames[i]).longValue());
+            out.writeUTF((String) idsAndNames[i + 1]);
+            out.writeUTF("Room " + idsAndNames[i] + " moved");
+        }
+        return CourseList.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static String describe(CourseList courses) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < courses.size(); i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(courses.getId(i)).append(' ').append(courses.getName(i));
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.android.courses;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.test.ProviderTestCase2;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/**
+ * A CourseProvider of its own for each test, on database files the test context renames,
+ * so tests never see the app's courses or each other's.
+ */
+public abstract class CourseProviderTestCase extends ProviderTestCase2<CourseProvider> {
+
+    /** What ProviderTestCase2's renaming context puts in front of every file name */
+    private static final String TEST_FILE_PREFIX = "test.";
+
+    public CourseProviderTestCase() {
+        super(CourseProvider.class, CourseContract.CONTENT_AUTHORITY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        for (String name : getContext().databaseList()) {//left behind by an earlier test
+            if (name.startsWith(TEST_FILE_PREFIX)) {
+                getContext().deleteDatabase(name);
+            }
+        }
+        super.setUp();
+    }
+
+    /** A complete course as the editor saves it */
+    static ContentValues course(String name, String room, String teacher, String time, String day) {
+        ContentValues values = new ContentValues();
+        values.put(CourseEntry.COLUMN_COURSE_NAME, name);
+        values.put(CourseEntry.COLUMN_COURSE_ROOM, room);
+        values.put(CourseEntry.COLUMN_COURSE_TEACHER, teacher);
+        values.put(CourseEntry.COLUMN_COURSE_TIME, time);
+        values.put(CourseEntry.COLUMN_COURSE_DAY, day);
+        return values;
+    }
+
+    /** count courses, each in a room and with a teacher of its own so none of them conflict */
+    static ContentValues[] courses(int count) {
+        ContentValues[] values = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = course("Course " + i, "Room " + i, "Teacher " + i, "9:00-10:30", "Monday");
+        }
+        return values;
+    }
+
+    ContentResolver resolver() {
+        return getMockContentResolver();
+    }
+
+    /** Rows a query of uri returns */
+    int count(Uri uri) {
+        Cursor cursor = resolver().query(uri, null, null, null, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** The single string column of the first row of a query, null if there is no row */
+    String queryString(Uri uri, String column) {
+        Cursor cursor = resolver().query(uri, new String[]{column}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** Forget the notifications counted so far */
+    void resetMetrics() {
+        getProvider().call(CourseContract.METHOD_RESET_METRICS, null, null);
+    }
+
+    /** Change notifications of a kind (CourseEntry.CHANGE_*) sent since the last resetMetrics() */
+    long notifications(String change) {
+        Bundle metrics = getProvider().call(CourseContract.METHOD_METRICS, null, null);
+        return metrics.getBundle(CourseContract.METRICS_NOTIFICATIONS).getLong(change);
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Schema migrations: a database of any earlier version upgrades to the current one with every
+ * course intact and ends up with the same schema as a fresh install.
+ */
+public class MigrationTest extends AndroidTestCase {
+
+    /** The schema the JVM benchmarks build their tables from, see the benchmark module */
+    private static final String BENCHMARK_SCHEMA = "/com/example/android/courses/benchmark/schema.sql";
+    /** What the benchmarks run after a soft delete, see CourseDbHelper.generationBookkeeping */
+    private static final String BENCHMARK_SOFT_DELETE = "/com/example/android/courses/benchmark/soft_delete.sql";
+
+    private Context mContext;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext = new RenamingDelegatingContext(getContext(), "test.");
+        mContext.deleteDatabase(CourseDbHelper.DATABASE_NAME);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.deleteDatabase(CourseDbHelper.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testEveryVersionUpgradesWithItsCourses() {
+        List<String> freshSchema = schemaOf(null);
+        for (int version = 1; version < CourseDbHelper.DATABASE_VERSION; version++) {
+            SQLiteDatabase old = createAtVersion(version,
+                    course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"),
+                    course("Biology", "Lab 1", "Jones", "2pm", "Tuesday"),
+                    course("Chess club", "B12", "Smith", "after lunch", "whenever"));
+            old.close();
+
+            CourseDbHelper helper = new CourseDbHelper(mContext);
+            SQLiteDatabase db = helper.getWritableDatabase();
+            try {
+                String from = "from version " + version;
+                assertEquals(from, CourseDbHelper.DATABASE_VERSION, db.getVersion());
+                assertEquals(from, freshSchema, schemaOf(db));
+                assertCourse(from, db, 1, "Algebra", "B12", "Smith", 1, 540, 630);
+                assertCourse(from, db, 2, "Biology", "Lab 1", "Jones", 2, 840, 900);
+                assertCourse(from, db, 3, "Chess club", "B12", "Smith", null, null, null);
+                assertEquals(from, 2, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " +
+                        CourseDbHelper.FTS_TABLE_NAME + " WHERE " + CourseDbHelper.FTS_TABLE_NAME + " MATCH 'smith'", null));
+            } finally {
+                helper.close();
+                mContext.deleteDatabase(CourseDbHelper.DATABASE_NAME);
+            }
+        }
+    }
+
+    public void testDuplicateCoursesSurviveTheNaturalKey() {
+        SQLiteDatabase old = createAtVersion(9,
+                course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"),
+                course("Algebra", "C7", "Jones", "9:00-10:30", "Monday"),
+                course("Biology", "Lab 1", "Jones", "2pm", "Tuesday"));
+        old.close();
+
+        CourseDbHelper helper = new CourseDbHelper(mContext);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertCourse("kept", db, 1, "Algebra", "B12", "Smith", 1, 540, 630);
+            assertCourse("duplicate kept", db, 2, "Algebra", "C7", "Jones", 1, 540, 630);
+            assertCourse("kept", db, 3, "Biology", "Lab 1", "Jones", 2, 840, 900);
+            // the first course holds the key, the duplicate has none until it's told apart
+            assertEquals("1,3", DatabaseUtils.stringForQuery(db, "SELECT group_concat(" +
+                    CourseDbHelper.COLUMN_COURSE_ID + ") FROM (SELECT " + CourseDbHelper.COLUMN_COURSE_ID +
+                    " FROM " + CourseDbHelper.KEYS_TABLE + " ORDER BY 1)", null));
+
+            // the editor saves every column, the duplicate's unchanged name, day and time included
+            ContentValues save = new ContentValues();
+            save.put(CourseEntry.COLUMN_COURSE_NAME, "Algebra");
+            save.put(CourseEntry.COLUMN_COURSE_DAY, "Monday");
+            save.put(CourseEntry.COLUMN_COURSE_TIME, "9:00-10:30");
+            save.put(CourseEntry.COLUMN_COURSE_END_MINUTE, 640);
+            assertEquals(1, db.update(CourseDbHelper.COURSE_ROWS_TABLE, save, CourseEntry._ID + "=2", null));
+            assertEquals(2, DatabaseUtils.queryNumEntries(db, CourseDbHelper.KEYS_TABLE));
+
+            ContentValues rename = new ContentValues();
+            rename.put(CourseEntry.COLUMN_COURSE_NAME, "Algebra II");
+            assertEquals(1, db.update(CourseDbHelper.COURSE_ROWS_TABLE, rename, CourseEntry._ID + "=2", null));
+            assertEquals(3, DatabaseUtils.queryNumEntries(db, CourseDbHelper.KEYS_TABLE));
+        } finally {
+            helper.close();
+        }
+    }
+
+    public void testUndoRestoresDuplicatesFromBeforeTheNaturalKey() {
+        SQLiteDatabase old = createAtVersion(9,
+                course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"),
+                course("Algebra", "C7", "Jones", "9:00-10:30", "Monday"));
+        old.close();
+
+        CourseDbHelper helper = new CourseDbHelper(mContext);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                long generation = CourseDeletions.newGeneration(db);
+                assertEquals(2, CourseDeletions.hide(db, generation, CourseDbHelper.LIVE_SELECTION, null));
+                assertEquals(0, DatabaseUtils.queryNumEntries(db, CourseDbHelper.KEYS_TABLE));
+                assertEquals(2, CourseDeletions.restore(db, generation).length);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            assertEquals(2, DatabaseUtils.queryNumEntries(db, CourseEntry.TABLE_NAME));
+            // the first course gets its key back, the duplicate stays without one
+            assertEquals("1", DatabaseUtils.stringForQuery(db, "SELECT group_concat(" +
+                    CourseDbHelper.COLUMN_COURSE_ID + ") FROM " + CourseDbHelper.KEYS_TABLE, null));
+        } finally {
+            helper.close();
+        }
+    }
+
+    public void testProviderLookupsUseIndexes() {
+        CourseDbHelper helper = new CourseDbHelper(mContext);
+        try {
+            assertEquals(Collections.<String>emptyList(), CourseDbHelper.findTableScans(helper.getReadableDatabase()));
+        } finally {
+            helper.close();
+        }
+    }
+
+    public void testNewerVersionStartsOver() {
+        SQLiteDatabase future = mContext.openOrCreateDatabase(CourseDbHelper.DATABASE_NAME, 0, null);
+        future.execSQL("CREATE TABLE from_the_future(x)");
+        future.setVersion(CourseDbHelper.DATABASE_VERSION + 1);
+        future.close();
+
+        CourseDbHelper helper = new CourseDbHelper(mContext);
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertEquals(CourseDbHelper.DATABASE_VERSION, db.getVersion());
+            assertEquals(schemaOf(null), schemaOf(db));
+        } finally {
+            helper.close();
+        }
+    }
+
+    /**
+     * The benchmark module's copy of the schema, which it can't get from CourseDbHelper on the
+     * JVM, builds the same database as a fresh install. When it doesn't, the message is the text
+     * to replace it with.
+     */
+    public void testBenchmarkSchemaIsCurrent() throws IOException {
+        SQLiteDatabase fresh = SQLiteDatabase.create(null);
+        SQLiteDatabase copy = SQLiteDatabase.create(null);
+        try {
+            fresh.execSQL(CourseDbHelper.SQL_CREATE_VERSION_1);
+            CourseDbHelper.migrate(fresh, 1, CourseDbHelper.DATABASE_VERSION);
+            String schema = readBenchmarkResource(BENCHMARK_SCHEMA);
+            for (String statement : schema.split("\n;\n")) {
+                if (!statement.trim().isEmpty()) {
+                    copy.execSQL(statement);
+                }
+            }
+            if (!schemaOf(fresh).equals(schemaOf(copy))) {
+                StringBuilder current = new StringBuilder();
+                Cursor cursor = fresh.rawQuery("SELECT sql FROM sqlite_master WHERE sql IS NOT NULL" +
+                        " AND name NOT LIKE 'sqlite_%' AND NOT (type='table' AND name LIKE '" +
+                        CourseDbHelper.FTS_TABLE_NAME + "_%') ORDER BY CASE type WHEN 'table' THEN 0" +
+                        " WHEN 'index' THEN 1 WHEN 'view' THEN 2 ELSE 3 END, rowid", null);
+                try {
+                    while (cursor.moveToNext()) {
+                        current.append(cursor.getString(0)).append("\n;\n");
+                    }
+                } finally {
+                    cursor.close();
+                }
+                fail(BENCHMARK_SCHEMA + " is out of date, its statements should be:\n" + current);
+            }
+        } finally {
+            fresh.close();
+            copy.close();
+        }
+    }
+
+    /** The benchmark module's soft delete runs the statements the provider runs */
+    public void testBenchmarkSoftDeleteIsCurrent() throws IOException {
+        StringBuilder current = new StringBuilder();
+        for (String statement : CourseDbHelper.generationBookkeeping(false)) {
+            current.append(statement).append("\n;\n");
+        }
+        if (!current.toString().equals(readBenchmarkResource(BENCHMARK_SOFT_DELETE))) {
+            fail(BENCHMARK_SOFT_DELETE + " is out of date, its statements should be:\n" + current);
+        }
+    }
+
+    /** A resource of the benchmark module without its comment lines */
+    private static String readBenchmarkResource(String resource) throws IOException {
+        InputStream in = MigrationTest.class.getResourceAsStream(resource);
+        assertNotNull(resource + " isn't on the test classpath", in);
+        StringBuilder text = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("--")) {
+                    text.append(line).append('\n');
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return text.toString();
+    }
+
+    /**
+     * A database at version holding courses, inserted as a version 1 install would have stored
+     * them and then carried through the migration steps up to version.
+     */
+    SQLiteDatabase createAtVersion(int version, ContentValues... courses) {
+        SQLiteDatabase db = mContext.openOrCreateDatabase(CourseDbHelper.DATABASE_NAME, 0, null);
+        db.beginTransaction();
+        try {
+            db.execSQL(CourseDbHelper.SQL_CREATE_VERSION_1);
+            for (ContentValues course : courses) {
+                db.insertOrThrow(CourseEntry.TABLE_NAME, null, course);
+            }
+            CourseDbHelper.migrate(db, 1, version);
+            db.setVersion(version);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return db;
+    }
+
+    static ContentValues course(String name, String room, String teacher, String time, String day) {
+        return CourseProviderTestCase.course(name, room, teacher, time, day);
+    }
+
+    /** Every schema object with its SQL, of db or of a fresh in-memory database for null */
+    static List<String> schemaOf(SQLiteDatabase db) {
+        SQLiteDatabase fresh = null;
+        if (db == null) {
+            fresh = SQLiteDatabase.create(null);
+            fresh.execSQL(CourseDbHelper.SQL_CREATE_VERSION_1);
+            CourseDbHelper.migrate(fresh, 1, CourseDbHelper.DATABASE_VERSION);
+            db = fresh;
+        }
+        List<String> schema = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master" +
+                " WHERE name NOT LIKE 'sqlite_%' AND name != 'android_metadata' ORDER BY type, name", null);
+        try {
+            while (cursor.moveToNext()) {
+                schema.add(cursor.getString(0) + " " + cursor.getString(1) + ": " + cursor.getString(2));
+            }
+        } finally {
+            cursor.close();
+            if (fresh != null) {
+                fresh.close();
+            }
+        }
+        return schema;
+    }
+
+    private static void assertCourse(String message, SQLiteDatabase db, long id, String name, String room,
+                                     String teacher, Integer dayOfWeek, Integer start, Integer end) {
+        Cursor cursor = db.query(CourseEntry.TABLE_NAME, new String[]{CourseEntry.COLUMN_COURSE_NAME,
+                        CourseEntry.COLUMN_COURSE_ROOM, CourseEntry.COLUMN_COURSE_TEACHER,
+                        CourseEntry.COLUMN_COURSE_DAY_OF_WEEK, CourseEntry.COLUMN_COURSE_START_MINUTE,
+                        CourseEntry.COLUMN_COURSE_END_MINUTE},
+                CourseEntry._ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
+        try {
+            assertTrue(message + ": course " + id + " is missing", cursor.moveToFirst());
+            assertEquals(message, name, cursor.getString(0));
+            assertEquals(message, room, cursor.getString(1));
+            assertEquals(message, teacher, cursor.getString(2));
+            assertEquals(message, dayOfWeek, cursor.isNull(3) ? null : cursor.getInt(3));
+            assertEquals(message, start, cursor.isNull(4) ? null : cursor.getInt(4));
+            assertEquals(message, end, cursor.isNull(5) ? null : cursor.getInt(5));
+        } finally {
+            cursor.close();
+        }
+    }
+}
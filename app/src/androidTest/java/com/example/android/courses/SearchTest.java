@@ -0,0 +1,93 @@
+package com.example.android.courses;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** The search uri: prefix matches over name, teacher and room, kept in step with every write */
+public class SearchTest extends CourseProviderTestCase {
+
+    public void testMatchesWordPrefixesOfEveryColumn() {
+        insert("Linear algebra", "B12", "Smith", "9:00", "Monday");
+        insert("Biology", "Lab 1", "Jones", "9:00", "Tuesday");
+        assertEquals(names("Linear algebra"), search("alg"));
+        assertEquals(names("Linear algebra"), search("smi"));
+        assertEquals(names("Biology"), search("lab"));
+        assertEquals(names(), search("gebra"));//a prefix, not any substring
+    }
+
+    public void testEveryWordMustMatch() {
+        insert("Algebra", "B12", "Smith", "9:00", "Monday");
+        insert("Algebra", "B14", "Jones", "9:00", "Tuesday");
+        assertEquals(1, search("algebra jones").size());
+    }
+
+    public void testRanksCoursesByHowOftenTheyMatch() {
+        insert("Math", "Room 2", "Brown", "9:00", "Monday");
+        insert("Math", "Math lab", "Mathers", "11:00", "Monday");
+        Cursor cursor = resolver().query(CourseEntry.buildSearchUri("math"),
+                new String[]{CourseEntry.COLUMN_COURSE_ROOM}, null, null, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Math lab", cursor.getString(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testFollowsUpdatesAndDeletes() {
+        Uri uri = insert("Chemistry", "C1", "Curie", "9:00", "Monday");
+        ContentValues rename = new ContentValues();
+        rename.put(CourseEntry.COLUMN_COURSE_NAME, "Physics");
+        assertEquals(1, resolver().update(uri, rename, null, null));
+        assertEquals(names(), search("chem"));
+        assertEquals(names("Physics"), search("phys"));
+
+        assertEquals(1, resolver().delete(uri, null, null));
+        assertEquals(names(), search("phys"));
+        assertEquals(names(), search("curie"));
+    }
+
+    public void testOperatorsAndQuotesAreIgnored() {
+        insert("Art", "A1", "Monet", "9:00", "Monday");
+        assertEquals(names("Art"), search("\"art\"*"));
+        assertEquals(names("Art"), search("-(MON)"));//not an exclusion
+        assertEquals(names(), search("*\"-"));
+    }
+
+    private Uri insert(String name, String room, String teacher, String time, String day) {
+        Uri uri = resolver().insert(CourseEntry.CONTENT_URI, course(name, room, teacher, time, day));
+        assertNotNull(uri);
+        assertTrue(ContentUris.parseId(uri) > 0);
+        return uri;
+    }
+
+    /** names of the courses a search returns, in the order it returns them */
+    private List<String> search(String query) {
+        List<String> names = new ArrayList<>();
+        Cursor cursor = resolver().query(CourseEntry.buildSearchUri(query),
+                new String[]{CourseEntry.COLUMN_COURSE_NAME}, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return names;
+    }
+
+    private static List<String> names(String... names) {
+        List<String> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(name);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.android.courses;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/** Soft deletes and their undo, which brings back the courses of one delete in particular */
+public class SoftDeleteTest extends CourseProviderTestCase {
+
+    public void testUndoBringsBackTheCoursesOfItsOwnDelete() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(3));
+        Bundle deleteAll = softDeleteAll();
+        assertEquals(3, deleteAll.getInt(CourseContract.DELETE_ROWS));
+        assertEquals(0, count(CourseEntry.CONTENT_URI));
+
+        // someone else deletes a newer course before the undo
+        Uri other = resolver().insert(CourseEntry.CONTENT_URI,
+                course("Zoology", "Z1", "Zed", "9:00-10:30", "Friday"));
+        assertEquals(1, resolver().delete(softDelete(other), null, null));
+
+        assertEquals(3, undo(deleteAll.getLong(CourseContract.DELETE_GENERATION)));
+        assertEquals(3, count(CourseEntry.CONTENT_URI));
+        assertNull(queryString(other, CourseEntry.COLUMN_COURSE_NAME));
+    }
+
+    public void testUndoTwiceRestoresNothing() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(2));
+        long generation = softDeleteAll().getLong(CourseContract.DELETE_GENERATION);
+        assertEquals(2, undo(generation));
+        assertEquals(0, undo(generation));
+        assertEquals(2, count(CourseEntry.CONTENT_URI));
+    }
+
+    public void testStatisticsLeaveWithTheCoursesAndComeBackWithTheUndo() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(3));
+        Uri byDay = CourseEntry.buildStatsUri(CourseContract.PATH_DAY);
+        long generation = softDeleteAll().getLong(CourseContract.DELETE_GENERATION);
+        assertEquals(0, count(byDay));
+        assertEquals(0, count(CourseEntry.buildStatsUri(CourseContract.PATH_TEACHER)));
+        assertEquals(3, undo(generation));
+        assertEquals("3", queryString(byDay, CourseEntry.COLUMN_STATS_COURSES));
+        assertEquals(3, count(CourseEntry.buildStatsUri(CourseContract.PATH_ROOM)));
+    }
+
+    public void testUndoBringsBackACourseWhoseKeyWasTaken() {
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"));
+        long generation = softDeleteAll().getLong(CourseContract.DELETE_GENERATION);
+        // the deleted course's name, day and time are free for a new one until the undo
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra", "C7", "Jones", "9:00-10:30", "Monday"));
+        assertEquals(1, undo(generation));
+        assertEquals(2, count(CourseEntry.CONTENT_URI));
+    }
+
+    public void testDeletingNothingHasNoGeneration() {
+        Bundle deleteAll = softDeleteAll();
+        assertEquals(0, deleteAll.getInt(CourseContract.DELETE_ROWS));
+        assertEquals(-1, deleteAll.getLong(CourseContract.DELETE_GENERATION));
+    }
+
+    public void testPurgingLogsNoSecondDelete() {
+        resolver().bulkInsert(CourseEntry.CONTENT_URI, courses(2));
+        softDeleteAll();
+        long logged = lastChangeSequence();
+
+        // what the purger does once the undo window is over
+        CourseDbHelper helper = new CourseDbHelper(getMockContext());
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            assertEquals(2, db.delete(CourseDbHelper.COURSE_ROWS_TABLE,
+                    CourseDbHelper.COLUMN_DELETED_GENERATION + " IS NOT NULL", null));
+        } finally {
+            helper.close();
+        }
+        assertEquals(0, count(CourseEntry.buildChangesUri(logged)));
+        assertEquals(2, count(CourseEntry.buildChangesUri(0)));
+    }
+
+    /** The change sequence of the latest change in the log */
+    private long lastChangeSequence() {
+        Cursor cursor = resolver().query(CourseEntry.buildChangesUri(0),
+                new String[]{CourseEntry.COLUMN_CHANGE_SEQUENCE}, null, null, null);
+        assertNotNull(cursor);
+        try {
+            assertTrue(cursor.moveToLast());
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Bundle softDeleteAll() {
+        return getProvider().call(CourseContract.METHOD_SOFT_DELETE, null, null);
+    }
+
+    private int undo(long generation) {
+        return getProvider().call(CourseContract.METHOD_UNDO_DELETE, String.valueOf(generation), null)
+                .getInt(CourseContract.UNDO_ROWS);
+    }
+
+    private static Uri softDelete(Uri course) {
+        return course.buildUpon().appendQueryParameter(CourseEntry.PARAM_SOFT, "true").build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * CSV and JSON import and export: both stream, so the heap they keep doesn't grow with the
+ * number of courses, and an export imports back into the same courses.
+ */
+public class TransferTest extends CourseProviderTestCase {
+
+    private static final int LARGE_COURSES = 100000;
+    /** Retained heap an export or import of LARGE_COURSES may add, well under the size of the file */
+    private static final long HEAP_BUDGET_BYTES = 3 * 1024 * 1024;
+    /** Lines between heap samples */
+    private static final int SAMPLE_EVERY = 10000;
+    private static final long IMPORT_TIMEOUT_MS = 5 * 60 * 1000;
+
+    public void testLargeExportKeepsHeapFlat() throws IOException {
+        for (int i = 0; i < LARGE_COURSES; i += 5000) {
+            assertEquals(5000, resolver().bulkInsert(CourseEntry.CONTENT_URI, largeCourses(i, 5000)));
+        }
+        long baseline = retainedHeap();
+        long maxGrowth = 0;
+        long chars = 0;
+        int lines = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                resolver().openInputStream(CourseEntry.CSV_URI), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chars += line.length() + 2;
+                if (++lines % SAMPLE_EVERY == 0) {
+                    maxGrowth = Math.max(maxGrowth, retainedHeap() - baseline);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(1 + LARGE_COURSES, lines);//the header and every course
+        assertTrue("Export of only " + chars + " chars proves nothing", chars > 2 * HEAP_BUDGET_BYTES);
+        assertTrue("Export kept " + maxGrowth + " bytes", maxGrowth < HEAP_BUDGET_BYTES);
+    }
+
+    public void testLargeImportKeepsHeapFlat() throws IOException, InterruptedException {
+        resetMetrics();
+        long baseline = retainedHeap();
+        long maxGrowth = 0;
+        long chars = 0;
+        // the courses have no time, the conflict index keeps every scheduled course in memory by design
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                resolver().openOutputStream(CourseEntry.CSV_URI), "UTF-8"));
+        try {
+            writer.write(CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry.COLUMN_COURSE_ROOM + "," +
+                    CourseEntry.COLUMN_COURSE_TEACHER + "," + CourseEntry.COLUMN_COURSE_TIME + "," +
+                    CourseEntry.COLUMN_COURSE_DAY + "\r\n");
+            for (int i = 0; i < LARGE_COURSES; i++) {
+                ContentValues course = largeCourses(i, 1)[0];
+                course.put(CourseEntry.COLUMN_COURSE_TIME, "tba");
+                String line = course.getAsString(CourseEntry.COLUMN_COURSE_NAME) + "," +
+                        course.getAsString(CourseEntry.COLUMN_COURSE_ROOM) + "," +
+                        course.getAsString(CourseEntry.COLUMN_COURSE_TEACHER) + "," +
+                        course.getAsString(CourseEntry.COLUMN_COURSE_TIME) + "," +
+                        course.getAsString(CourseEntry.COLUMN_COURSE_DAY) + "\r\n";
+                writer.write(line);
+                chars += line.length();
+                if ((i + 1) % SAMPLE_EVERY == 0) {
+                    maxGrowth = Math.max(maxGrowth, retainedHeap() - baseline);
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        awaitImport(CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CSV);
+        maxGrowth = Math.max(maxGrowth, retainedHeap() - baseline);
+
+        assertEquals(LARGE_COURSES, count(CourseEntry.CONTENT_URI));
+        assertTrue("Import of only " + chars + " chars proves nothing", chars > 2 * HEAP_BUDGET_BYTES);
+        assertTrue("Import kept " + maxGrowth + " bytes", maxGrowth < HEAP_BUDGET_BYTES);
+    }
+
+    public void testJsonExportImportsBack() throws IOException, InterruptedException {
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra, \"advanced\"", "B12", "Smith", "9:00-10:30", "Monday"));
+        resolver().insert(CourseEntry.CONTENT_URI, course("Biology\nlab", "Lab 1", "Jones", "2pm", "Tuesday"));
+        byte[] export = readFully(resolver().openInputStream(CourseEntry.JSON_URI));
+        assertEquals(2, resolver().delete(CourseEntry.CONTENT_URI, null, null));
+
+        resetMetrics();
+        OutputStream out = resolver().openOutputStream(CourseEntry.JSON_URI);
+        try {
+            out.write(export);
+        } finally {
+            out.close();
+        }
+        awaitImport(CourseContract.PATH_COURSES + "/" + CourseContract.PATH_JSON);
+        assertEquals(2, count(CourseEntry.CONTENT_URI));
+        assertEquals("Lab 1", queryString(CourseEntry.buildSearchUri("biology"), CourseEntry.COLUMN_COURSE_ROOM));
+        assertEquals("Algebra, \"advanced\"", queryString(CourseEntry.buildSearchUri("smith"), CourseEntry.COLUMN_COURSE_NAME));
+    }
+
+    /** count courses from first on, named long enough to make a file many times the heap budget */
+    private static ContentValues[] largeCourses(int first, int count) {
+        ContentValues[] values = new ContentValues[count];
+        for (int i = 0; i < count; i++) {
+            int n = first + i;
+            values[i] = course("Introduction to course number " + n, "Building " + n + " room",
+                    "Teacher number " + n, "9:00-10:30", "Monday");
+        }
+        return values;
+    }
+
+    /** imports run on a thread of their own after the stream closes, wait for the one of target to be recorded */
+    private void awaitImport(String target) throws InterruptedException {
+        long deadline = SystemClock.uptimeMillis() + IMPORT_TIMEOUT_MS;
+        while (SystemClock.uptimeMillis() < deadline) {
+            Bundle metrics = getProvider().call(CourseContract.METHOD_METRICS, null, null);
+            Bundle imports = metrics.getBundle(CourseMetrics.OP_IMPORT + " " + target);
+            if (imports != null && imports.getLong(CourseContract.METRIC_COUNT) > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("Import into " + target + " didn't finish");
+    }
+
+    /** Java heap still in use after a collection */
+    private static long retainedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        runtime.runFinalization();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/**
+ * The natural key of a course, its name, day and time: upserts update the live course with the
+ * same key instead of adding one, and no other write may give two live courses the same key.
+ */
+public class UpsertTest extends CourseProviderTestCase {
+
+    public void testUpsertUpdatesTheCourseWithTheSameKey() {
+        Uri inserted = resolver().insert(CourseEntry.UPSERT_URI,
+                course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"));
+        Uri updated = resolver().insert(CourseEntry.UPSERT_URI,
+                course("Algebra", "C7", "Jones", "9:00-10:30", "Monday"));
+        assertEquals(inserted, updated);
+        assertEquals(1, count(CourseEntry.CONTENT_URI));
+        assertEquals("C7", queryString(updated, CourseEntry.COLUMN_COURSE_ROOM));
+    }
+
+    public void testUpdateOntoAnotherCoursesKeyIsRejected() {
+        resolver().insert(CourseEntry.CONTENT_URI, course("Algebra", "B12", "Smith", "9:00-10:30", "Monday"));
+        resolver().insert(CourseEntry.CONTENT_URI, course("Biology", "Lab 1", "Jones", "9:00-10:30", "Monday"));
+        ContentValues rename = new ContentValues();
+        rename.put(CourseEntry.COLUMN_COURSE_NAME, "Algebra");
+        try {
+            resolver().update(CourseEntry.CONTENT_URI, rename, CourseEntry.COLUMN_COURSE_NAME + "=?",
+                    new String[]{"Biology"});
+            fail("Two courses named Algebra on Monday at 9:00");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals("Lab 1", queryString(CourseEntry.buildSearchUri("biology"), CourseEntry.COLUMN_COURSE_ROOM));
+    }
+
+    public void testUpsertUriIsACourseList() {
+        assertEquals(CourseEntry.CONTENT_LIST_TYPE, resolver().getType(CourseEntry.UPSERT_URI));
+    }
+}
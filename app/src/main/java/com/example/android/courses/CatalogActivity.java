@@ -1,31 +1,96 @@
 package com.example.android.courses;
 
 import android.app.LoaderManager;
+import android.content.ContentResolver;
 import android.content.ContentUris;
-import android.content.CursorLoader;
+import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
 import android.support.design.widget.FloatingActionButton;
+import android.support.design.widget.Snackbar;
+import android.support.design.widget.TabLayout;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
+import android.widget.Toast;
 
 import com.example.android.courses.CourseContract.CourseEntry;
 
+import java.lang.ref.WeakReference;
+import java.text.DateFormatSymbols;
+
 
 /**
  * Displays list of courses that were entered and stored in the app.
  */
-public class CatalogActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<Cursor> {
+public class CatalogActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<CourseList> {
+
+    private static final int CATALOG_LOADER = 0;
+
+    /** Courses read per page, the list asks for the next page when it scrolls within half a page of the end */
+    private static final int PAGE_SIZE = 50;
+    /** Loader argument: how many courses the first page covers, more than PAGE_SIZE when reloading a scrolled list */
+    private static final String ARG_LIMIT = "limit";
+    /** Saved state: the day tab showing */
+    private static final String STATE_DAY = "day";
+
+    private static final String[] CATALOG_PROJECTION = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_NAME,
+            CourseEntry.COLUMN_COURSE_ROOM,
+    };
+
+    /** The catalog tracks changes itself with mCourseObserver, so its cursor doesn't requery on every edit */
+    private static final Uri CATALOG_URI = CourseEntry.CONTENT_URI.buildUpon()
+            .appendQueryParameter(CourseEntry.PARAM_OBSERVE, "false").build();
+
+    CourseAdapter mCourseAdapter;
+
+    /** day of week of the selected tab, 1 (Monday) to 7, or 0 for the tab with every course */
+    private int mDay;
+    /** whether the first live courses have been shown, when the system is told the activity is fully drawn */
+    private boolean mReportedFullyDrawn;
 
-    CourseCursorAdapter mCursorAdapter;
+    /** every course loaded so far: the loader's first page and the pages appended as the list scrolled */
+    private CourseList mCourses = CourseList.EMPTY;
+    private boolean mHasMorePages;
+    private boolean mLoadingPage;
+    /** bumped whenever the pages are thrown away, so a page that was loading for the old list is dropped */
+    private int mPageGeneration;
+
+    /** patches edited or deleted courses into the list, reloads it when courses are added */
+    private final CourseChangeObserver mCourseObserver = new CourseChangeObserver(new Handler()) {
+        @Override
+        public void onCoursesChanged(String change, long[] ids) {
+            if (mDay != 0) {
+                onCoursesReset();//an edit can move a course on or off the day, and a day is small enough to reload
+            } else if (CourseEntry.CHANGE_UPDATE.equals(change)) {
+                new PatchRowsTask(CatalogActivity.this).execute(ids);
+            } else if (CourseEntry.CHANGE_DELETE.equals(change)) {
+                showCourses(mCourses.remove(ids));
+            } else {
+                onCoursesReset();
+            }
+        }
+
+        @Override
+        public void onCoursesReset() {
+            // reload as many courses as are showing so the list doesn't jump back to the first page
+            Bundle args = new Bundle();
+            args.putInt(ARG_LIMIT, Math.max(PAGE_SIZE, mCourses.size()));
+            getLoaderManager().restartLoader(CATALOG_LOADER, args, CatalogActivity.this);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -42,42 +107,318 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
             }
         });
 
-        /**empty view setup*/
-        // Find the ListView which will be populated with the course data
-        ListView courseListView = (ListView) findViewById(R.id.list);
-        // Find and set empty view on the ListView
-        View emptyView = findViewById(R.id.empty_view);
-        courseListView.setEmptyView(emptyView);
-
-        /**list item (normal) view setup*/
-        //setup adapter to create list item for each row of course data in Cursor.
-        mCursorAdapter = new CourseCursorAdapter(this, null);//null b/c no course data yet
-        // Attach cursor adapter to the ListView
-        courseListView.setAdapter(mCursorAdapter);
-
-        /**Setup the item click listener*/
-        courseListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // a tab for every course, then one per day of the week
+        if (savedInstanceState != null) {
+            mDay = savedInstanceState.getInt(STATE_DAY);
+        }
+        TabLayout dayTabs = (TabLayout) findViewById(R.id.day_tabs);
+        String[] weekdays = new DateFormatSymbols().getShortWeekdays();//indexed by Calendar.SUNDAY (1) to SATURDAY (7)
+        dayTabs.addTab(dayTabs.newTab().setText(R.string.tab_all_days), mDay == 0);
+        for (int day = 1; day <= 7; day++) {
+            dayTabs.addTab(dayTabs.newTab().setText(weekdays[day % 7 + 1]), mDay == day);
+        }
+        dayTabs.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+            @Override
+            public void onTabSelected(TabLayout.Tab tab) {
+                mDay = tab.getPosition();
+                mPageGeneration++;//drop pages and patches still loading for the other tab
+                mLoadingPage = false;
+                getLoaderManager().restartLoader(CATALOG_LOADER, null, CatalogActivity.this);
+            }
+
+            @Override
+            public void onTabUnselected(TabLayout.Tab tab) {
+            }
+
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long id) {
+            public void onTabReselected(TabLayout.Tab tab) {
+            }
+        });
+
+        // Find the RecyclerView which will be populated with the course data
+        RecyclerView courseListView = (RecyclerView) findViewById(R.id.list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        courseListView.setLayoutManager(layoutManager);
+
+        /**list item (normal) view setup, with the item click listener*/
+        mCourseAdapter = new CourseAdapter(new CourseAdapter.OnCourseClickListener() {
+            @Override
+            public void onCourseClick(long id) {
                 Intent intent = new Intent(CatalogActivity.this, EditorActivity.class);
 
                 // Form the content URI that represents the specific course with id that was clicked on,
-                Uri currentPetUri = ContentUris.withAppendedId(CourseEntry.CONTENT_URI, id);
+                Uri currentCourseUri = ContentUris.withAppendedId(CourseEntry.CONTENT_URI, id);
 
                 // Set the URI on the data field of the intent
-                intent.setData(currentPetUri);
+                intent.setData(currentCourseUri);
 
                 startActivity(intent);
             }
         });
+        courseListView.setAdapter(mCourseAdapter);
+
+        /**empty view setup*/
+        // RecyclerView has no empty view of its own, show ours whenever the adapter is empty
+        final View emptyView = findViewById(R.id.empty_view);
+        mCourseAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                emptyView.setVisibility(mCourseAdapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                onChanged();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                onChanged();
+            }
+        });
+
+        // load the next page as the list nears its end
+        courseListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                int totalItemCount = mCourseAdapter.getItemCount();
+                if (mHasMorePages && !mLoadingPage && totalItemCount > 0 &&
+                        layoutManager.findLastVisibleItemPosition() >= totalItemCount - PAGE_SIZE / 2) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        // on a cold start show the courses saved at the last write while the database opens,
+        // the loader's first page replaces them
+        if (savedInstanceState == null && mDay == 0) {
+            CourseList snapshot = CourseSnapshot.read(this);
+            if (snapshot != null) {
+                showCourses(snapshot);
+            }
+        }
 
         // start loader
-        getLoaderManager().initLoader(0, null, this);
+        getLoaderManager().initLoader(CATALOG_LOADER, null, this);
+        mCourseObserver.register(getContentResolver());
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_DAY, mDay);
+    }
+
+    @Override
+    protected void onDestroy() {
+        getContentResolver().unregisterContentObserver(mCourseObserver);
+        super.onDestroy();
+    }
+
+    /** the catalog a task was started from, or null once it's going away and the task's result isn't wanted */
+    private static CatalogActivity showing(WeakReference<CatalogActivity> catalogRef) {
+        CatalogActivity catalog = catalogRef.get();
+        if (catalog == null || catalog.isFinishing() || (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1
+                && catalog.isDestroyed())) {
+            return null;
+        }
+        return catalog;
+    }
+
+    /** hand the courses to the adapter, which diffs them against what's on screen */
+    private void showCourses(CourseList courses) {
+        mCourses = courses;
+        mCourseAdapter.setCourses(courses);
+    }
+
+    /** start loading the page after the last course in the list */
+    private void loadNextPage() {
+        if (mCourses.size() == 0) {
+            return;
+        }
+        int last = mCourses.size() - 1;
+        Uri pageUri = CourseEntry.buildNextPageUri(
+                CourseEntry.buildPageUri(CATALOG_URI, CourseEntry.COLUMN_COURSE_NAME, PAGE_SIZE),
+                mCourses.getName(last), mCourses.getId(last));
+
+        mLoadingPage = true;
+        new LoadPageTask(this).execute(pageUri);
+    }
+
+    /**
+     * Reads courses off the main thread, dropped if the list was reloaded before it finishes.
+     * Static and holding the catalog weakly, so a read that finishes after the catalog is gone
+     * doesn't keep it around.
+     */
+    private abstract static class CoursesTask<Params> extends AsyncTask<Params, Void, CourseList> {
+        private final WeakReference<CatalogActivity> mCatalog;
+        private final ContentResolver mResolver;
+        final int mGeneration;
+
+        CoursesTask(CatalogActivity catalog) {
+            mCatalog = new WeakReference<>(catalog);
+            mResolver = catalog.getContentResolver();
+            mGeneration = catalog.mPageGeneration;
+        }
+
+        /** the catalog, if it's still showing the list this task was started for */
+        CatalogActivity catalog() {
+            CatalogActivity catalog = showing(mCatalog);
+            return catalog != null && catalog.mPageGeneration == mGeneration ? catalog : null;
+        }
+
+        CourseList query(Uri uri, String selection, String[] selectionArgs) {
+            Cursor cursor = mResolver.query(uri, CATALOG_PROJECTION, selection, selectionArgs, null);
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                return CourseList.fromCursor(cursor);
+            } finally {
+                cursor.close();
+            }
+        }
+
+        @Override
+        protected void onPostExecute(CourseList courses) {
+            CatalogActivity catalog = catalog();
+            if (catalog != null && courses != null) {
+                onCoursesLoaded(catalog, courses);
+            }
+        }
+
+        abstract void onCoursesLoaded(CatalogActivity catalog, CourseList courses);
+    }
+
+    /** reads one page and appends it to the list */
+    private static class LoadPageTask extends CoursesTask<Uri> {
+        LoadPageTask(CatalogActivity catalog) {
+            super(catalog);
+        }
+
+        @Override
+        protected CourseList doInBackground(Uri... params) {
+            return query(params[0], null, null);
+        }
+
+        @Override
+        protected void onPostExecute(CourseList page) {
+            CatalogActivity catalog = catalog();
+            if (catalog != null) {
+                catalog.mLoadingPage = false;
+            }
+            super.onPostExecute(page);
+        }
+
+        @Override
+        void onCoursesLoaded(CatalogActivity catalog, CourseList page) {
+            catalog.mHasMorePages = page.size() >= PAGE_SIZE;
+            catalog.showCourses(catalog.mCourses.append(page));
+        }
+    }
+
+    /** loads the new name and room of edited courses and moves them to where they now sort in the list */
+    private static class PatchRowsTask extends CoursesTask<long[]> {
+        PatchRowsTask(CatalogActivity catalog) {
+            super(catalog);
+        }
+
+        @Override
+        protected CourseList doInBackground(long[]... params) {
+            long[] ids = params[0];
+            StringBuilder selection = new StringBuilder(CourseEntry._ID + " IN (");
+            String[] selectionArgs = new String[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                selection.append(i == 0 ? "?" : ",?");
+                selectionArgs[i] = String.valueOf(ids[i]);
+            }
+            selection.append(')');
+            return query(CATALOG_URI, selection.toString(), selectionArgs);
+        }
+
+        @Override
+        void onCoursesLoaded(CatalogActivity catalog, CourseList changed) {
+            catalog.showCourses(catalog.mCourses.update(changed, !catalog.mHasMorePages));
+        }
     }
 
+    /** soft delete every course, they vanish at once and can be brought back for a while */
     private void deleteAllCourses(){
-        int rowsDeleted = getContentResolver().delete(CourseEntry.CONTENT_URI, null, null);
-        Log.v("CatalogActivity", rowsDeleted + " rows deleted from course database");
+        new DeleteAllTask(this).execute();
+    }
+
+    /**
+     * Soft deletes every course off the main thread, then offers to undo that delete for as long
+     * as the catalog is showing. Static and holding the catalog weakly, so a delete that finishes
+     * after the catalog is gone doesn't keep it around.
+     */
+    private static class DeleteAllTask extends AsyncTask<Void, Void, Bundle> {
+        private final ContentResolver mResolver;
+        private final WeakReference<CatalogActivity> mCatalog;
+
+        DeleteAllTask(CatalogActivity catalog) {
+            mCatalog = new WeakReference<>(catalog);
+            mResolver = catalog.getContentResolver();
+        }
+
+        @Override
+        protected Bundle doInBackground(Void... params) {
+            return mResolver.call(CourseEntry.CONTENT_URI, CourseContract.METHOD_SOFT_DELETE, null, null);
+        }
+
+        @Override
+        protected void onPostExecute(Bundle result) {
+            int rows = result == null ? 0 : result.getInt(CourseContract.DELETE_ROWS);
+            Log.v("CatalogActivity", rows + " rows deleted from course database");
+            final CatalogActivity catalog = showing(mCatalog);
+            if (catalog == null || rows == 0) {
+                return;
+            }
+            // undo this delete in particular, a later one may have been made by someone else
+            final long generation = result.getLong(CourseContract.DELETE_GENERATION);
+            Snackbar.make(catalog.findViewById(R.id.list),
+                    catalog.getResources().getQuantityString(R.plurals.courses_deleted, rows, rows), Snackbar.LENGTH_LONG)
+                    .setAction(R.string.undo, new View.OnClickListener() {
+                        @Override
+                        public void onClick(View view) {
+                            new UndoDeleteTask(catalog, generation).execute();
+                        }
+                    })
+                    .show();
+        }
+    }
+
+    /**
+     * Brings back the courses of a delete, the change observer reloads the list. Reports a failure
+     * with the application context, the catalog may be gone by then.
+     */
+    private static class UndoDeleteTask extends AsyncTask<Void, Void, String> {
+        private final Context mAppContext;
+        private final long mGeneration;
+
+        UndoDeleteTask(Context context, long generation) {
+            mAppContext = context.getApplicationContext();
+            mGeneration = generation;
+        }
+
+        @Override
+        protected String doInBackground(Void... params) {
+            try {
+                Bundle result = mAppContext.getContentResolver().call(CourseEntry.CONTENT_URI,
+                        CourseContract.METHOD_UNDO_DELETE, String.valueOf(mGeneration), null);
+                return result != null && result.getInt(CourseContract.UNDO_ROWS) > 0
+                        ? null : mAppContext.getString(R.string.undo_too_late);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();//a restored course would double book a room or teacher
+            }
+        }
+
+        @Override
+        protected void onPostExecute(String error) {
+            if (error != null) {
+                Toast.makeText(mAppContext, error, Toast.LENGTH_LONG).show();
+            }
+        }
     }
 
     @Override
@@ -100,29 +441,41 @@ public class CatalogActivity extends AppCompatActivity implements LoaderManager.
 
     @Override
     // Called when a new Loader needs to be created
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        String[] projection = {
-                CourseEntry._ID,
-                CourseEntry.COLUMN_COURSE_NAME,
-                CourseEntry.COLUMN_COURSE_ROOM,
-        };
-        //create and return a CursorLoader that will take care of
-        // creating a Cursor for the data being displayed.
-        return new CursorLoader(this, CourseEntry.CONTENT_URI, projection, null, null, null);
+    public Loader<CourseList> onCreateLoader(int id, Bundle args) {
+        if (mDay != 0) {
+            // one day's courses by start time, all at once
+            Uri dayUri = CourseEntry.buildDayUri(mDay).buildUpon()
+                    .appendQueryParameter(CourseEntry.PARAM_OBSERVE, "false").build();
+            return new CourseListLoader(this, dayUri, CATALOG_PROJECTION);
+        }
+        // the first page of courses by name, later pages are read by loadNextPage()
+        int limit = args != null ? args.getInt(ARG_LIMIT, PAGE_SIZE) : PAGE_SIZE;
+        Uri firstPageUri = CourseEntry.buildPageUri(CATALOG_URI, CourseEntry.COLUMN_COURSE_NAME, limit);
+        //create and return a loader that reads the courses being displayed on a background thread
+        return new CourseListLoader(this, firstPageUri, CATALOG_PROJECTION);
     }
 
     @Override
     // Called when a previously created loader has finished loading
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        // Swap the new cursor in.
-        mCursorAdapter.swapCursor(data);
+    public void onLoadFinished(Loader<CourseList> loader, CourseList data) {
+        // a fresh first page replaces everything appended to the old one
+        mPageGeneration++;
+        mLoadingPage = false;
+        String limit = ((CourseListLoader) loader).getUri().getQueryParameter(CourseEntry.PARAM_LIMIT);
+        mHasMorePages = limit != null && data.size() >= Integer.parseInt(limit);
+        showCourses(data);
+        // the log's "Displayed" time is the first frame, with the snapshot if there was one, "Fully drawn" is the live list
+        if (!mReportedFullyDrawn && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            mReportedFullyDrawn = true;
+            reportFullyDrawn();
+        }
     }
 
     @Override
     // Called when a previously created loader is reset, making the data unavailable
-    public void onLoaderReset(Loader<Cursor> loader) {
-        // This is called when the last Cursor provided to onLoadFinished()
-        // above is about to be closed.
-        mCursorAdapter.swapCursor(null);
+    public void onLoaderReset(Loader<CourseList> loader) {
+        mPageGeneration++;
+        mLoadingPage = false;
+        showCourses(CourseList.EMPTY);
     }
 }
\ No newline at end of file
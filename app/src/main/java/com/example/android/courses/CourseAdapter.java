@@ -0,0 +1,143 @@
+package com.example.android.courses;
+
+import android.os.AsyncTask;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * RecyclerView adapter for the catalog. Each new list of courses is diffed against the one on
+ * screen on a background thread, and only the rows that were added, removed or changed get rebound.
+ */
+public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseViewHolder> {
+
+    /** callback for a tap on a course in the list */
+    public interface OnCourseClickListener {
+        void onCourseClick(long id);
+    }
+
+    private final OnCourseClickListener mListener;
+
+    /** what's on screen */
+    private CourseList mCourses = CourseList.EMPTY;
+    /** newest list handed in while a diff was running, diffed as soon as that one finishes */
+    private CourseList mPendingCourses;
+    private boolean mDiffing;
+
+    public CourseAdapter(OnCourseClickListener listener) {
+        mListener = listener;
+        setHasStableIds(true);
+    }
+
+    /** The courses on screen right now, without any that are still being diffed in */
+    public CourseList getCourses() {
+        return mCourses;
+    }
+
+    /** Show a new list of courses, animating only the rows that differ from the current one */
+    public void setCourses(CourseList courses) {
+        mPendingCourses = courses;
+        if (!mDiffing) {
+            diffPendingCourses();
+        }
+    }
+
+    private void diffPendingCourses() {
+        final CourseList oldCourses = mCourses;
+        final CourseList newCourses = mPendingCourses;
+        mPendingCourses = null;
+        mDiffing = true;
+        new AsyncTask<Void, Void, DiffUtil.DiffResult>() {
+            @Override
+            protected DiffUtil.DiffResult doInBackground(Void... params) {
+                return DiffUtil.calculateDiff(new CourseDiff(oldCourses, newCourses), false);
+            }
+
+            @Override
+            protected void onPostExecute(DiffUtil.DiffResult diff) {
+                mCourses = newCourses;
+                diff.dispatchUpdatesTo(CourseAdapter.this);
+                mDiffing = false;
+                if (mPendingCourses != null) {
+                    diffPendingCourses();
+                }
+            }
+        }.execute();
+    }
+
+    @Override //new blank list item view
+    public CourseViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.list_item, parent, false);
+        return new CourseViewHolder(view);
+    }
+
+    @Override //binds course data to list item layout
+    public void onBindViewHolder(CourseViewHolder holder, int position) {
+        holder.mNameTextView.setText(mCourses.getName(position));
+        holder.mSummaryTextView.setText(mCourses.getRoom(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return mCourses.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mCourses.getId(position);
+    }
+
+    /** list item views, looked up once when the item is inflated */
+    class CourseViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final TextView mNameTextView;
+        final TextView mSummaryTextView;
+
+        CourseViewHolder(View itemView) {
+            super(itemView);
+            mNameTextView = (TextView) itemView.findViewById(R.id.name);
+            mSummaryTextView = (TextView) itemView.findViewById(R.id.summary);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            if (getAdapterPosition() != RecyclerView.NO_POSITION) {
+                mListener.onCourseClick(getItemId());
+            }
+        }
+    }
+
+    /** same course if same _id, same contents if name and room still match */
+    private static class CourseDiff extends DiffUtil.Callback {
+        private final CourseList mOld;
+        private final CourseList mNew;
+
+        CourseDiff(CourseList oldCourses, CourseList newCourses) {
+            mOld = oldCourses;
+            mNew = newCourses;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOld.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return mOld.getId(oldPosition) == mNew.getId(newPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return mOld.sameContents(oldPosition, mNew, newPosition);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.android.courses;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.os.Bundle;
+import android.util.LruCache;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of whole course rows by _id, so opening a course the catalog just showed
+ * doesn't go back to SQLite. Sized by an estimate of the bytes each row holds.
+ */
+final class CourseCache {
+
+    /** Every column of a cached row, in the order the values are stored */
+    static final String[] COLUMNS = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_NAME,
+            CourseEntry.COLUMN_COURSE_ROOM,
+            CourseEntry.COLUMN_COURSE_TEACHER,
+            CourseEntry.COLUMN_COURSE_TIME,
+            CourseEntry.COLUMN_COURSE_DAY,
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK,
+            CourseEntry.COLUMN_COURSE_START_MINUTE,
+            CourseEntry.COLUMN_COURSE_END_MINUTE};
+
+    /** rough per-row overhead: the array, boxed numbers and String headers */
+    private static final int ROW_OVERHEAD_BYTES = 16 + COLUMNS.length * (4 + 24);
+
+    private final LruCache<Long, Object[]> mRows;
+
+    /**
+     * Bumped on every invalidation. A reader only caches what it read from the database if
+     * nothing was invalidated since it started reading, so a row that changed underneath
+     * it never gets cached stale.
+     */
+    private final AtomicLong mGeneration = new AtomicLong();
+
+    CourseCache(int maxBytes) {
+        mRows = new LruCache<Long, Object[]>(maxBytes) {
+            @Override
+            protected int sizeOf(Long id, Object[] row) {
+                int bytes = ROW_OVERHEAD_BYTES;
+                for (Object value : row) {
+                    if (value instanceof String) {
+                        bytes += 2 * ((String) value).length();
+                    }
+                }
+                return bytes;
+            }
+        };
+    }
+
+    /** Take before reading a row from the database, pass to {@link #put} afterwards */
+    long generation() {
+        return mGeneration.get();
+    }
+
+    /** true if every column of the projection is one the cache holds */
+    static boolean canServe(String[] projection) {
+        return mapProjection(projection) != null;
+    }
+
+    /** A cursor over the cached row for id in the projection's columns, or null on a miss or an uncached column */
+    Cursor get(long id, String[] projection) {
+        int[] columns = mapProjection(projection);
+        if (columns == null) {
+            return null;
+        }
+        Object[] row = mRows.get(id);
+        return row == null ? null : toCursor(row, projection, columns);
+    }
+
+    /**
+     * Cache the row under the cursor's current position (read with {@link #COLUMNS}) and return
+     * a cursor over it in the projection's columns.
+     */
+    Cursor put(long generation, Cursor cursor, String[] projection) {
+        Object[] row = new Object[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            row[i] = cursor.isNull(i) ? null
+                    : cursor.getType(i) == Cursor.FIELD_TYPE_INTEGER ? (Object) cursor.getLong(i) : cursor.getString(i);
+        }
+        synchronized (this) {
+            if (mGeneration.get() == generation) {
+                mRows.put((Long) row[0], row);
+            }
+        }
+        return toCursor(row, projection, mapProjection(projection));
+    }
+
+    /** Drop the rows with these ids, or everything when ids is null */
+    void invalidate(long[] ids) {
+        synchronized (this) {
+            mGeneration.incrementAndGet();
+        }
+        if (ids == null) {
+            mRows.evictAll();
+            return;
+        }
+        for (long id : ids) {
+            mRows.remove(id);
+        }
+    }
+
+    /** hit/miss/eviction counts and memory use, for sizing the cache */
+    Bundle getStats() {
+        Bundle stats = new Bundle();
+        int hits = mRows.hitCount();
+        int misses = mRows.missCount();
+        stats.putInt(CourseContract.CACHE_HITS, hits);
+        stats.putInt(CourseContract.CACHE_MISSES, misses);
+        stats.putFloat(CourseContract.CACHE_HIT_RATIO, hits + misses == 0 ? 0f : (float) hits / (hits + misses));
+        stats.putInt(CourseContract.CACHE_EVICTIONS, mRows.evictionCount());
+        stats.putInt(CourseContract.CACHE_SIZE_BYTES, mRows.size());
+        stats.putInt(CourseContract.CACHE_MAX_SIZE_BYTES, mRows.maxSize());
+        return stats;
+    }
+
+    /** index into COLUMNS for each projected column, null if the projection asks for something else */
+    private static int[] mapProjection(String[] projection) {
+        if (projection == null) {
+            projection = COLUMNS;
+        }
+        int[] columns = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columns[i] = -1;
+            for (int j = 0; j < COLUMNS.length; j++) {
+                if (COLUMNS[j].equals(projection[i])) {
+                    columns[i] = j;
+                    break;
+                }
+            }
+            if (columns[i] < 0) {
+                return null;
+            }
+        }
+        return columns;
+    }
+
+    private static Cursor toCursor(Object[] row, String[] projection, int[] columns) {
+        MatrixCursor cursor = new MatrixCursor(projection == null ? COLUMNS : projection, 1);
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = row[columns[i]];
+        }
+        cursor.addRow(values);
+        return cursor;
+    }
+}
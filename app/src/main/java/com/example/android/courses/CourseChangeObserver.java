@@ -0,0 +1,100 @@
+package com.example.android.courses;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.text.TextUtils;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.List;
+
+/**
+ * Observes the courses table and decodes the provider's change notifications into which
+ * courses were inserted, updated or deleted, so a screen can patch just those rows.
+ * When the change can't be pinned down (too many rows, or API 15 which doesn't pass the
+ * notification URI to observers) it asks for a full reload instead.
+ */
+public abstract class CourseChangeObserver extends ContentObserver {
+
+    /** A collection notice lists at most this many ids, bigger changes are sent as "reload everything" */
+    static final int MAX_NOTIFIED_IDS = 100;
+
+    public CourseChangeObserver(Handler handler) {
+        super(handler);
+    }
+
+    /** Start observing every course, unregister with ContentResolver.unregisterContentObserver */
+    public void register(ContentResolver resolver) {
+        resolver.registerContentObserver(CourseEntry.CONTENT_URI, true, this);
+    }
+
+    /**
+     * The courses with these ids changed.
+     * @param change one of CourseEntry.CHANGE_INSERT, CHANGE_UPDATE or CHANGE_DELETE
+     */
+    public abstract void onCoursesChanged(String change, long[] ids);
+
+    /** Anything may have changed, reload all courses */
+    public abstract void onCoursesReset();
+
+    @Override
+    public void onChange(boolean selfChange) {
+        onCoursesReset();
+    }
+
+    @Override
+    public void onChange(boolean selfChange, Uri uri) {
+        String change = uri == null ? null : uri.getQueryParameter(CourseEntry.PARAM_CHANGE);
+        long[] ids = change == null ? null : parseIds(uri);
+        if (ids == null) {
+            onCoursesReset();
+        } else {
+            onCoursesChanged(change, ids);
+        }
+    }
+
+    /** ids from an item URI or from a collection notice's ids parameter, null if it names none */
+    private static long[] parseIds(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() == 2 && TextUtils.isDigitsOnly(segments.get(1))) {
+            return new long[]{Long.parseLong(segments.get(1))};
+        }
+        String idList = uri.getQueryParameter(CourseEntry.PARAM_CHANGED_IDS);
+        if (segments.size() != 1 || TextUtils.isEmpty(idList)) {
+            return null;
+        }
+        String[] idStrings = idList.split(",");
+        long[] ids = new long[idStrings.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Long.parseLong(idStrings[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * The URI the provider notifies for a change: the course's item URI for one id, the
+     * collection URI listing the ids for a few, and the bare collection URI when ids is null
+     * or too long to list.
+     */
+    static Uri buildChangeUri(String change, long[] ids) {
+        Uri.Builder builder;
+        if (ids != null && ids.length == 1) {
+            builder = CourseEntry.CONTENT_URI.buildUpon().appendPath(String.valueOf(ids[0]));
+        } else {
+            builder = CourseEntry.CONTENT_URI.buildUpon();
+            if (ids != null && ids.length > 0 && ids.length <= MAX_NOTIFIED_IDS) {
+                StringBuilder idList = new StringBuilder();
+                for (long id : ids) {
+                    if (idList.length() > 0) {
+                        idList.append(',');
+                    }
+                    idList.append(id);
+                }
+                builder.appendQueryParameter(CourseEntry.PARAM_CHANGED_IDS, idList.toString());
+            }
+        }
+        return builder.appendQueryParameter(CourseEntry.PARAM_CHANGE, change).build();
+    }
+}
@@ -0,0 +1,515 @@
+package com.example.android.courses;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory interval index of the scheduled courses per room and per teacher per weekday, for
+ * finding double bookings without scanning every course. Each room/day and teacher/day keeps its
+ * courses sorted by start as an implicit balanced tree, every node knowing the latest end below
+ * it, so an overlap lookup costs one root to leaf path, O(log n), plus one path per course it
+ * reports. The same buckets keep their bookings as {@link CourseSlots} bitsets to answer free
+ * time queries.
+ *
+ * The index is loaded from the database on first use. After that the provider invalidates the
+ * ids a write touched and only those rows are read again the next time the index is asked.
+ * Writers check their courses inside their transaction, readers query through any connection
+ * without one. The rows a check read stay dirty, and the provider invalidates them again once
+ * the write commits, so a reader never keeps a row that may still roll back.
+ */
+final class CourseConflicts {
+
+    /** Columns of a conflicts URI row, all of them when a query has no projection */
+    static final String[] COLUMNS = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_CONFLICT_COURSE_ID,
+            CourseEntry.COLUMN_CONFLICT_OTHER_ID,
+            CourseEntry.COLUMN_CONFLICT_KIND,
+            CourseEntry.COLUMN_CONFLICT_SHARED,
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK,
+            CourseEntry.COLUMN_COURSE_START_MINUTE,
+            CourseEntry.COLUMN_COURSE_END_MINUTE};
+
+    /** Columns of a free slots URI row, all of them when a query has no projection */
+    static final String[] FREE_SLOT_COLUMNS = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_ROOM,
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK,
+            CourseEntry.COLUMN_COURSE_START_MINUTE,
+            CourseEntry.COLUMN_COURSE_END_MINUTE};
+
+    private static final String[] PROJECTION = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_ROOM,
+            CourseEntry.COLUMN_COURSE_TEACHER,
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK,
+            CourseEntry.COLUMN_COURSE_START_MINUTE,
+            CourseEntry.COLUMN_COURSE_END_MINUTE};
+
+    /** only courses whose day and time parsed can overlap anything */
+    private static final String SCHEDULED_SELECTION =
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + " IS NOT NULL AND " +
+            CourseEntry.COLUMN_COURSE_START_MINUTE + " IS NOT NULL";
+
+    /** ids re-read per query, keeps each IN list short */
+    private static final int IDS_PER_QUERY = 500;
+
+    private final Map<Long, Entry> mEntries = new HashMap<>();
+    private final Map<String, Bucket> mRooms = new HashMap<>();
+    private final Map<String, Bucket> mTeachers = new HashMap<>();
+
+    /** false until the first load and after an invalidation of unknown ids */
+    private boolean mLoaded;
+    /** ids whose rows changed since they were read */
+    private final Set<Long> mDirtyIds = new HashSet<>();
+
+    /** The courses with these ids changed or are gone, or anything may have changed when ids is null */
+    synchronized void invalidate(long[] ids) {
+        if (ids == null) {
+            mLoaded = false;
+            mDirtyIds.clear();
+            return;
+        }
+        if (!mLoaded) {
+            return;
+        }
+        for (long id : ids) {
+            mDirtyIds.add(id);
+        }
+    }
+
+    /**
+     * Throws IllegalArgumentException if any of these courses shares a room or teacher with
+     * another course at an overlapping time on the same day. Call it after writing the courses,
+     * inside the transaction that wrote them.
+     */
+    synchronized void check(SQLiteDatabase db, long[] ids) {
+        invalidate(ids);
+        refresh(db);
+        List<Entry> overlaps = new ArrayList<>();
+        for (long id : ids) {
+            Entry course = mEntries.get(id);
+            if (course == null) {
+                continue;//not scheduled
+            }
+            if (findOverlaps(mRooms, course.mRoomKey, course, overlaps)) {
+                throw new IllegalArgumentException("Room " + course.mRoom + " is already booked for course "
+                        + overlaps.get(0).mId + " at that time");
+            }
+            if (findOverlaps(mTeachers, course.mTeacherKey, course, overlaps)) {
+                throw new IllegalArgumentException(course.mTeacher + " already teaches course "
+                        + overlaps.get(0).mId + " at that time");
+            }
+        }
+        invalidate(ids);//read as the uncommitted transaction sees them
+    }
+
+    /** Every pair of courses that double books a room or a teacher, one row per pair in the given columns */
+    synchronized Cursor queryConflicts(SQLiteDatabase db, String[] projection) {
+        if (projection == null) {
+            projection = COLUMNS;
+        }
+        int[] columns = mapProjection(projection, COLUMNS);
+        refresh(db);
+
+        MatrixCursor cursor = new MatrixCursor(projection);
+        Object[] row = new Object[COLUMNS.length];
+        Object[] projected = new Object[columns.length];
+        long rowId = 0;
+        for (int kind = 0; kind < 2; kind++) {
+            Map<String, Bucket> buckets = kind == 0 ? mRooms : mTeachers;
+            for (Bucket bucket : buckets.values()) {
+                Entry[] byStart = bucket.byStart();
+                for (int i = 0; i < byStart.length; i++) {
+                    Entry course = byStart[i];
+                    // later courses start at or after this one, they overlap it while they start before it ends
+                    for (int j = i + 1; j < byStart.length && byStart[j].mStart < course.mEnd; j++) {
+                        Entry other = byStart[j];
+                        row[0] = ++rowId;
+                        row[1] = course.mId;
+                        row[2] = other.mId;
+                        row[3] = kind == 0 ? CourseEntry.CONFLICT_ROOM : CourseEntry.CONFLICT_TEACHER;
+                        row[4] = kind == 0 ? course.mRoom : course.mTeacher;
+                        row[5] = course.mDay;
+                        row[6] = other.mStart;
+                        row[7] = Math.min(course.mEnd, other.mEnd);
+                        for (int c = 0; c < columns.length; c++) {
+                            projected[c] = row[columns[c]];
+                        }
+                        cursor.addRow(projected);
+                    }
+                }
+            }
+        }
+        return cursor;
+    }
+
+    /**
+     * Free stretches of at least minutes between fromMinute and toMinute on day (0 for every
+     * day), one row per stretch in the given columns ordered by room, day and start.
+     * With a room, the times that room is free, and the teacher too if there is one. With only a
+     * teacher, the times the teacher is free, room is null. With neither, the free times of every
+     * room that has courses.
+     */
+    synchronized Cursor queryFreeSlots(SQLiteDatabase db, String room, String teacher, int minutes,
+                                       int day, int fromMinute, int toMinute, String[] projection) {
+        if (projection == null) {
+            projection = FREE_SLOT_COLUMNS;
+        }
+        int[] columns = mapProjection(projection, FREE_SLOT_COLUMNS);
+        refresh(db);
+
+        // room display names by key, sorted so the rows come out in room order
+        Map<String, String> rooms = new TreeMap<>();
+        String roomKey = normalize(room);
+        String teacherKey = normalize(teacher);
+        if (roomKey != null || teacherKey != null) {
+            rooms.put(roomKey == null ? "" : roomKey, roomKey == null ? null : room);
+        } else {
+            // every room that has courses on some day
+            for (Bucket bucket : mRooms.values()) {
+                rooms.put(bucket.mKey, bucket.name(true));
+            }
+        }
+
+        MatrixCursor cursor = new MatrixCursor(projection);
+        Object[] row = new Object[FREE_SLOT_COLUMNS.length];
+        Object[] projected = new Object[columns.length];
+        long rowId = 0;
+        long[] busy = CourseSlots.newDay();
+        List<int[]> free = new ArrayList<>();
+        for (Map.Entry<String, String> entry : rooms.entrySet()) {
+            for (int d = day == 0 ? 1 : day; d <= (day == 0 ? 7 : day); d++) {
+                Arrays.fill(busy, 0);
+                CourseSlots.or(busy, busySlots(mRooms, entry.getKey(), d));
+                CourseSlots.or(busy, busySlots(mTeachers, teacherKey, d));
+                free.clear();
+                CourseSlots.findFree(busy, fromMinute, toMinute, minutes, free);
+                for (int[] slot : free) {
+                    row[0] = ++rowId;
+                    row[1] = entry.getValue();
+                    row[2] = d;
+                    row[3] = slot[0];
+                    row[4] = slot[1];
+                    for (int c = 0; c < columns.length; c++) {
+                        projected[c] = row[columns[c]];
+                    }
+                    cursor.addRow(projected);
+                }
+            }
+        }
+        return cursor;
+    }
+
+    /** booked slots of the room or teacher with this key on day, null if it has nothing booked */
+    private static long[] busySlots(Map<String, Bucket> buckets, String key, int day) {
+        if (key == null) {
+            return null;
+        }
+        Bucket bucket = buckets.get(bucketKey(key, day));
+        return bucket == null ? null : bucket.busySlots();
+    }
+
+    /** index into columns for each projected column */
+    private static int[] mapProjection(String[] projection, String[] columns) {
+        int[] indexes = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            indexes[i] = Arrays.asList(columns).indexOf(projection[i]);
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Unknown column " + projection[i]);
+            }
+        }
+        return indexes;
+    }
+
+    /** overlaps of course in the bucket for key on its day, other than course itself. true if there are any */
+    private static boolean findOverlaps(Map<String, Bucket> buckets, String key, Entry course, List<Entry> overlaps) {
+        overlaps.clear();
+        if (key == null) {
+            return false;
+        }
+        Bucket bucket = buckets.get(bucketKey(key, course.mDay));
+        if (bucket != null) {
+            bucket.findOverlaps(course, overlaps);
+        }
+        return !overlaps.isEmpty();
+    }
+
+    /** bring the index up to date, loading everything or re-reading the dirty ids */
+    private void refresh(SQLiteDatabase db) {
+        if (!mLoaded) {
+            mEntries.clear();
+            mRooms.clear();
+            mTeachers.clear();
+            mDirtyIds.clear();
+            load(db, SCHEDULED_SELECTION);
+            mLoaded = true;
+            return;
+        }
+        if (mDirtyIds.isEmpty()) {
+            return;
+        }
+        StringBuilder idList = new StringBuilder();
+        int count = 0;
+        for (long id : mDirtyIds) {
+            remove(id);
+            if (count > 0) {
+                idList.append(',');
+            }
+            idList.append(id);
+            if (++count == IDS_PER_QUERY) {
+                loadIds(db, idList.toString());
+                idList.setLength(0);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            loadIds(db, idList.toString());
+        }
+        mDirtyIds.clear();
+    }
+
+    private void loadIds(SQLiteDatabase db, String idList) {
+        load(db, SCHEDULED_SELECTION + " AND " + CourseEntry._ID + " IN (" + idList + ")");
+    }
+
+    private void load(SQLiteDatabase db, String selection) {
+        Cursor cursor = db.query(CourseEntry.TABLE_NAME, PROJECTION, selection, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                Entry course = new Entry(cursor.getLong(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getInt(3), cursor.getInt(4), cursor.getInt(5));
+                mEntries.put(course.mId, course);
+                add(mRooms, course.mRoomKey, course);
+                add(mTeachers, course.mTeacherKey, course);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void remove(long id) {
+        Entry course = mEntries.remove(id);
+        if (course != null) {
+            remove(mRooms, course.mRoomKey, course);
+            remove(mTeachers, course.mTeacherKey, course);
+        }
+    }
+
+    private static void add(Map<String, Bucket> buckets, String key, Entry course) {
+        if (key == null) {
+            return;
+        }
+        String bucketKey = bucketKey(key, course.mDay);
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket == null) {
+            bucket = new Bucket(key);
+            buckets.put(bucketKey, bucket);
+        }
+        bucket.add(course);
+    }
+
+    private static void remove(Map<String, Bucket> buckets, String key, Entry course) {
+        if (key == null) {
+            return;
+        }
+        String bucketKey = bucketKey(key, course.mDay);
+        Bucket bucket = buckets.get(bucketKey);
+        if (bucket != null && bucket.remove(course)) {
+            buckets.remove(bucketKey);
+        }
+    }
+
+    private static String bucketKey(String key, int day) {
+        return day + "/" + key;
+    }
+
+    /** rooms and teachers compare ignoring case and surrounding spaces, blank ones aren't booked */
+    private static String normalize(String name) {
+        if (name == null) {
+            return null;
+        }
+        name = name.trim();
+        return TextUtils.isEmpty(name) ? null : name.toLowerCase(Locale.US);
+    }
+
+    /** A scheduled course as the index sees it */
+    private static final class Entry {
+        final long mId;
+        final String mRoom;
+        final String mTeacher;
+        final String mRoomKey;
+        final String mTeacherKey;
+        final int mDay;
+        final int mStart;
+        final int mEnd;
+        /** out of the index, its buckets drop it at their next lookup */
+        boolean mRemoved;
+
+        Entry(long id, String room, String teacher, int day, int start, int end) {
+            mId = id;
+            mRoom = room;
+            mTeacher = teacher;
+            mRoomKey = normalize(room);
+            mTeacherKey = normalize(teacher);
+            mDay = day;
+            mStart = start;
+            mEnd = end;
+        }
+    }
+
+    /**
+     * The courses of one room or teacher on one day, sorted and turned into slots on demand.
+     * The sorted courses stay sorted: courses added since the last lookup are sorted among
+     * themselves and merged in by the next one, removed ones dropped on the way, so a lookup
+     * after k changes costs O(n + k log k) rather than sorting the whole bucket again.
+     */
+    private static final class Bucket {
+        private static final Entry[] NONE = new Entry[0];
+
+        private static final Comparator<Entry> BY_START = new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                return a.mStart != b.mStart ? (a.mStart < b.mStart ? -1 : 1)
+                        : (a.mId < b.mId ? -1 : (a.mId == b.mId ? 0 : 1));
+            }
+        };
+
+        /** normalized room or teacher */
+        final String mKey;
+        /** courses sorted by start as of the last lookup, some of them may have been removed since */
+        private Entry[] mByStart = NONE;
+        /** courses added since the last lookup, in no order */
+        private final List<Entry> mAdded = new ArrayList<>();
+        /** courses in the bucket, not counting removed ones */
+        private int mSize;
+        /**
+         * mByStart read as a balanced tree: the root of the range low..high is its middle,
+         * (low + high) >>> 1, and mMaxEnd[i] is the latest end in the subtree rooted at i.
+         * Null when the bucket changed since the last lookup.
+         */
+        private int[] mMaxEnd;
+        /** the slots the courses book, null when one was removed since the last lookup */
+        private long[] mBusy;
+
+        Bucket(String key) {
+            mKey = key;
+        }
+
+        void add(Entry course) {
+            mAdded.add(course);
+            mSize++;
+            mMaxEnd = null;
+            if (mBusy != null) {
+                CourseSlots.markBusy(mBusy, course.mStart, course.mEnd);
+            }
+        }
+
+        /** true if the bucket is empty afterwards */
+        boolean remove(Entry course) {
+            course.mRemoved = true;
+            mSize--;
+            mMaxEnd = null;
+            mBusy = null;
+            return mSize == 0;
+        }
+
+        /** the room or teacher as the user typed it, buckets are never empty */
+        String name(boolean room) {
+            Entry course = byStart()[0];
+            return room ? course.mRoom : course.mTeacher;
+        }
+
+        long[] busySlots() {
+            if (mBusy == null) {
+                mBusy = CourseSlots.newDay();
+                for (Entry course : byStart()) {
+                    CourseSlots.markBusy(mBusy, course.mStart, course.mEnd);
+                }
+            }
+            return mBusy;
+        }
+
+        Entry[] byStart() {
+            if (mMaxEnd == null) {
+                Entry[] added = mAdded.toArray(new Entry[mAdded.size()]);
+                Arrays.sort(added, BY_START);
+                mAdded.clear();
+                mByStart = merge(mByStart, added, mSize);
+                mMaxEnd = new int[mByStart.length];
+                computeMaxEnd(0, mByStart.length - 1);
+            }
+            return mByStart;
+        }
+
+        /** the courses of two sorted arrays that haven't been removed, size of them, in one sorted array */
+        private static Entry[] merge(Entry[] a, Entry[] b, int size) {
+            Entry[] merged = new Entry[size];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.length || j < b.length) {
+                Entry next = j == b.length || (i < a.length && BY_START.compare(a[i], b[j]) < 0) ? a[i++] : b[j++];
+                if (!next.mRemoved) {
+                    merged[n++] = next;
+                }
+            }
+            return merged;
+        }
+
+        /** fill in mMaxEnd for the subtree over low..high and return its latest end */
+        private int computeMaxEnd(int low, int high) {
+            if (low > high) {
+                return Integer.MIN_VALUE;
+            }
+            int mid = (low + high) >>> 1;
+            mMaxEnd[mid] = Math.max(mByStart[mid].mEnd,
+                    Math.max(computeMaxEnd(low, mid - 1), computeMaxEnd(mid + 1, high)));
+            return mMaxEnd[mid];
+        }
+
+        /** courses other than course that overlap it, earliest start first */
+        void findOverlaps(Entry course, List<Entry> overlaps) {
+            findOverlaps(course, 0, byStart().length - 1, overlaps);
+        }
+
+        /**
+         * Only descends into a subtree that has a course ending after course starts and, on the
+         * right, starting before it ends. Once the middle starts before course ends, everything
+         * left of it does too, so a left subtree it enters always holds an overlap.
+         */
+        private void findOverlaps(Entry course, int low, int high, List<Entry> overlaps) {
+            if (low > high) {
+                return;
+            }
+            int mid = (low + high) >>> 1;
+            if (mMaxEnd[mid] <= course.mStart) {
+                return;//everything here ends before course starts
+            }
+            findOverlaps(course, low, mid - 1, overlaps);
+            Entry other = mByStart[mid];
+            if (other.mStart >= course.mEnd) {
+                return;//it and everything after it start once course is over
+            }
+            if (other.mEnd > course.mStart && other.mId != course.mId) {
+                overlaps.add(other);
+            }
+            findOverlaps(course, mid + 1, high, overlaps);
+        }
+    }
+}
@@ -1,45 +1,369 @@
-package com.example.android.courses;
-
-import android.content.ContentResolver;
-import android.net.Uri;
-import android.provider.BaseColumns;
-
-public final class CourseContract {
-    private CourseContract() {}
-
-    public static final String CONTENT_AUTHORITY = "com.example.android.courses";
-    public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + CONTENT_AUTHORITY);
-    public static final String PATH_COURSES = "courses";
-
-    public static class CourseEntry implements BaseColumns {
-
-        /** The content URI to access the course data in the provider */
-        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_COURSES);
-
-        /**
-         * The MIME type for a list of courses.
-         */
-        public static final String CONTENT_LIST_TYPE =
-                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_COURSES;
-
-        /**
-         * The MIME type for a single course.
-         */
-        public static final String CONTENT_ITEM_TYPE =
-                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_COURSES;
-
-        /** Name of database table for courses */
-        public static final String TABLE_NAME = "courses";
-
-        public static final String _ID = BaseColumns._ID;
-        public static final String COLUMN_COURSE_NAME = "name";
-        public static final String COLUMN_COURSE_ROOM = "room";
-        public static final String COLUMN_COURSE_TEACHER = "teacher";
-        public static final String COLUMN_COURSE_TIME = "time";
-        public static final String COLUMN_COURSE_DAY = "day";
-
-    }
-}
-
-
-
+package com.example.android.courses;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+public final class CourseContract {
+    private CourseContract() {}
+
+    public static final String CONTENT_AUTHORITY = "com.example.android.courses";
+    public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + CONTENT_AUTHORITY);
+    public static final String PATH_COURSES = "courses";
+    /** Sub path of courses for time range queries on one day, e.g. courses/schedule/2?from=600&to=840 */
+    public static final String PATH_SCHEDULE = "schedule";
+    /** Sub path of courses for full text search, e.g. courses/search/alg */
+    public static final String PATH_SEARCH = "search";
+    /** Sub path of courses listing every room or teacher double booking, courses/conflicts */
+    public static final String PATH_CONFLICTS = "conflicts";
+    /** Sub path of courses for free time of a room or teacher, e.g. courses/free?room=B12&minutes=90 */
+    public static final String PATH_FREE = "free";
+    /** Sub paths of courses for every course as one CSV or JSON file, courses/csv and courses/json */
+    public static final String PATH_CSV = "csv";
+    public static final String PATH_JSON = "json";
+    /** Sub path of courses for what changed after a change sequence number, e.g. courses/changes/42 */
+    public static final String PATH_CHANGES = "changes";
+    /**
+     * Sub paths of courses for the courses on one day, of one teacher or in one room, e.g.
+     * courses/day/2, courses/teacher/Smith, courses/room/B12. A day is 1 (Monday) to 7 or a day name.
+     */
+    public static final String PATH_DAY = "day";
+    public static final String PATH_TEACHER = "teacher";
+    public static final String PATH_ROOM = "room";
+    /** Sub path of courses for inserts that update the course with the same name, day and time, courses/upsert */
+    public static final String PATH_UPSERT = "upsert";
+    /** Sub path of courses for course counts and hours grouped by PATH_DAY, PATH_TEACHER or PATH_ROOM, e.g. courses/stats/day */
+    public static final String PATH_STATS = "stats";
+
+    /**
+     * ContentResolver.call() method that returns the provider's course cache statistics,
+     * a Bundle with the CACHE_ keys below. Sizes are estimated bytes.
+     */
+    public static final String METHOD_CACHE_STATS = "cache_stats";
+    public static final String CACHE_HITS = "hits";
+    public static final String CACHE_MISSES = "misses";
+    public static final String CACHE_HIT_RATIO = "hit_ratio";
+    public static final String CACHE_EVICTIONS = "evictions";
+    public static final String CACHE_SIZE_BYTES = "size_bytes";
+    public static final String CACHE_MAX_SIZE_BYTES = "max_size_bytes";
+
+    /**
+     * ContentResolver.call() methods that return or clear the provider's metrics. The metrics
+     * Bundle holds a Bundle per operation and URI pattern, e.g. "query courses/#", with the
+     * METRIC_ keys below, and the number of change notifications sent per kind of change under
+     * METRICS_NOTIFICATIONS. A query's rows are the rows its cursor holds.
+     * Bucket 0 of the latency histogram counts calls under a microsecond, bucket i calls of
+     * 2^(i-1) up to 2^i microseconds, and the last bucket everything slower.
+     */
+    public static final String METHOD_METRICS = "metrics";
+    public static final String METHOD_RESET_METRICS = "reset_metrics";
+    public static final String METRIC_COUNT = "count";
+    public static final String METRIC_TOTAL_MICROS = "total_micros";
+    public static final String METRIC_MAX_MICROS = "max_micros";
+    public static final String METRIC_ROWS = "rows";
+    public static final String METRIC_HISTOGRAM = "histogram_micros";
+    public static final String METRICS_NOTIFICATIONS = "notifications";
+
+    /**
+     * ContentResolver.call() method that soft deletes every course, as a delete of the courses
+     * URI with PARAM_SOFT does. Returns a Bundle with the number of courses hidden under
+     * DELETE_ROWS and the generation to pass to METHOD_UNDO_DELETE under DELETE_GENERATION,
+     * -1 if there were no courses. Writes every course, so don't call it on the main thread.
+     */
+    public static final String METHOD_SOFT_DELETE = "soft_delete";
+    public static final String DELETE_ROWS = "rows";
+    public static final String DELETE_GENERATION = "generation";
+
+    /**
+     * ContentResolver.call() method that brings back the courses of a soft delete made less than
+     * DELETE_UNDO_WINDOW_MS ago. arg is the delete's generation, or null for the latest one,
+     * which may be someone else's.
+     * Returns a Bundle with the number of courses restored under UNDO_ROWS, 0 if it was too late.
+     * Throws IllegalArgumentException if a restored course would double book a room or teacher.
+     */
+    public static final String METHOD_UNDO_DELETE = "undo_delete";
+    public static final String UNDO_ROWS = "rows";
+    /** How long a soft delete can be undone, after that its courses are purged for good */
+    public static final long DELETE_UNDO_WINDOW_MS = 30 * 1000;
+
+    /**
+     * ContentResolver.call() method that moves every current course into a new archived term
+     * named arg (letters, digits, '-' and '_') and compacts it. Each archived term is a database
+     * file of its own, so past terms don't slow down the courses in use. Returns a Bundle with the
+     * number of courses archived under ARCHIVE_ROWS, 0 without creating the term if there were
+     * no current courses. Throws IllegalArgumentException if the term already exists. Copies and deletes every course, so don't call it on the main thread.
+     */
+    public static final String METHOD_ARCHIVE_TERM = "archive_term";
+    public static final String ARCHIVE_ROWS = "rows";
+    /** ContentResolver.call() method that compacts the archived term named arg, returns null */
+    public static final String METHOD_COMPACT_TERM = "compact_term";
+    /** ContentResolver.call() method that returns the archived terms' names under TERMS, sorted */
+    public static final String METHOD_TERMS = "terms";
+    public static final String TERMS = "terms";
+    /** The current courses' name in CourseEntry.PARAM_TERM, no archived term can have it */
+    public static final String TERM_CURRENT = "current";
+
+    public static class CourseEntry implements BaseColumns {
+
+        /** The content URI to access the course data in the provider */
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_CONTENT_URI, PATH_COURSES);
+
+        /**
+         * The MIME type for a list of courses.
+         */
+        public static final String CONTENT_LIST_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_COURSES;
+
+        /**
+         * The MIME type for a single course.
+         */
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_COURSES;
+
+        /**
+         * Every course as a CSV or JSON file. Open for reading (ContentResolver.openInputStream)
+         * to export, for writing (openOutputStream) to import; imported courses are upserted like
+         * UPSERT_URI, so importing a file again changes nothing. Both stream, so a file of any size uses the same memory. The courses
+         * URI itself can also be opened as either type with openTypedAssetFileDescriptor.
+         */
+        public static final Uri CSV_URI = Uri.withAppendedPath(CONTENT_URI, PATH_CSV);
+        public static final Uri JSON_URI = Uri.withAppendedPath(CONTENT_URI, PATH_JSON);
+        public static final String MIME_TYPE_CSV = "text/csv";
+        public static final String MIME_TYPE_JSON = "application/json";
+
+        /** Name of the courses view, room and teacher joined in from their own tables. Read it, write through the provider */
+        public static final String TABLE_NAME = "courses";
+
+        public static final String _ID = BaseColumns._ID;
+        public static final String COLUMN_COURSE_NAME = "name";
+        public static final String COLUMN_COURSE_ROOM = "room";
+        public static final String COLUMN_COURSE_TEACHER = "teacher";
+        public static final String COLUMN_COURSE_TIME = "time";
+        public static final String COLUMN_COURSE_DAY = "day";
+
+        /**
+         * Normalized copies of COLUMN_COURSE_DAY and COLUMN_COURSE_TIME. The provider fills these in
+         * on insert and update, they are null when the text couldn't be parsed.
+         * Day of week is 1 (Monday) to 7 (Sunday), start/end are minutes since midnight.
+         */
+        public static final String COLUMN_COURSE_DAY_OF_WEEK = "day_of_week";
+        public static final String COLUMN_COURSE_START_MINUTE = "start_minute";
+        public static final String COLUMN_COURSE_END_MINUTE = "end_minute";
+
+        /** Length assumed for a course whose time only gives when it starts */
+        public static final int DEFAULT_COURSE_MINUTES = 60;
+
+        /**
+         * Query parameter of a query URI, "false" leaves the cursor unregistered for change
+         * notifications, for callers that track changes with a {@link CourseChangeObserver}.
+         */
+        public static final String PARAM_OBSERVE = "observe";
+
+        /**
+         * Query parameters of a change notification URI: what kind of change it was and, for a
+         * collection notice, the comma separated ids that changed. A single course change is sent
+         * on that course's item URI instead.
+         */
+        public static final String PARAM_CHANGE = "change";
+        public static final String PARAM_CHANGED_IDS = "ids";
+        public static final String CHANGE_INSERT = "insert";
+        public static final String CHANGE_UPDATE = "update";
+        public static final String CHANGE_DELETE = "delete";
+
+        /**
+         * Query parameters for one page of courses: the page size, the sort column (_id, name,
+         * room or teacher, default _id) and, after the first page, the sort key and _id of the
+         * last row of the previous page. Pages are read by key, not by OFFSET, so reading deep
+         * into a big catalog costs the same as reading the first page.
+         */
+        public static final String PARAM_LIMIT = "limit";
+        public static final String PARAM_SORT = "sort";
+        public static final String PARAM_AFTER = "after";
+        public static final String PARAM_AFTER_ID = "after_id";
+
+        /** The content URI for the first pageSize courses of uri, sorted by sortColumn then _id */
+        public static Uri buildPageUri(Uri uri, String sortColumn, int pageSize) {
+            return uri.buildUpon()
+                    .appendQueryParameter(PARAM_SORT, sortColumn)
+                    .appendQueryParameter(PARAM_LIMIT, String.valueOf(pageSize))
+                    .build();
+        }
+
+        /** The content URI for the page after the one pageUri returned, given that page's last row */
+        public static Uri buildNextPageUri(Uri pageUri, String lastSortKey, long lastId) {
+            Uri.Builder builder = pageUri.buildUpon().clearQuery();
+            for (String name : pageUri.getQueryParameterNames()) {
+                if (!PARAM_AFTER.equals(name) && !PARAM_AFTER_ID.equals(name)) {
+                    builder.appendQueryParameter(name, pageUri.getQueryParameter(name));
+                }
+            }
+            return builder.appendQueryParameter(PARAM_AFTER, lastSortKey)
+                    .appendQueryParameter(PARAM_AFTER_ID, String.valueOf(lastId))
+                    .build();
+        }
+
+        /** Query parameters of a schedule URI, minutes since midnight (from inclusive, to exclusive) */
+        public static final String PARAM_FROM_MINUTE = "from";
+        public static final String PARAM_TO_MINUTE = "to";
+
+        /** The content URI for courses on dayOfWeek that overlap the time range [fromMinute, toMinute) */
+        public static Uri buildScheduleUri(int dayOfWeek, int fromMinute, int toMinute) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_SCHEDULE)
+                    .appendPath(String.valueOf(dayOfWeek))
+                    .appendQueryParameter(PARAM_FROM_MINUTE, String.valueOf(fromMinute))
+                    .appendQueryParameter(PARAM_TO_MINUTE, String.valueOf(toMinute))
+                    .build();
+        }
+
+        /** The content URI listing every pair of courses that double books a room or a teacher */
+        public static final Uri CONFLICTS_URI = Uri.withAppendedPath(CONTENT_URI, PATH_CONFLICTS);
+
+        /**
+         * Columns of a conflicts row besides _id: the two courses, whether they share a room or
+         * a teacher, which room or teacher that is, and the day of week, start minute and end
+         * minute of the time they overlap.
+         */
+        public static final String COLUMN_CONFLICT_COURSE_ID = "course_id";
+        public static final String COLUMN_CONFLICT_OTHER_ID = "other_course_id";
+        public static final String COLUMN_CONFLICT_KIND = "kind";
+        public static final String COLUMN_CONFLICT_SHARED = "shared";
+        public static final String CONFLICT_ROOM = "room";
+        public static final String CONFLICT_TEACHER = "teacher";
+
+        /** The content URI for the courses on dayOfWeek (1 is Monday), by start time */
+        public static Uri buildDayUri(int dayOfWeek) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_DAY)
+                    .appendPath(String.valueOf(dayOfWeek))
+                    .build();
+        }
+
+        /** The content URI for a teacher's courses through the week, by day and start time */
+        public static Uri buildTeacherUri(String teacher) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_TEACHER)
+                    .appendPath(teacher)
+                    .build();
+        }
+
+        /** The content URI for the courses in a room through the week, by day and start time */
+        public static Uri buildRoomUri(String room) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_ROOM)
+                    .appendPath(room)
+                    .build();
+        }
+
+        /**
+         * Query parameters of a free slots URI: the room and/or teacher that must be free, how
+         * many minutes they must be free for, and optionally the day of week (1 to 7, every day
+         * when missing). PARAM_FROM_MINUTE and PARAM_TO_MINUTE narrow the hours searched. Rows
+         * have _id, room, day_of_week, start_minute and end_minute, one per free stretch, in
+         * whole 5 minute slots. Without a room or teacher every room's free time is listed.
+         */
+        public static final String PARAM_ROOM = "room";
+        public static final String PARAM_TEACHER = "teacher";
+        public static final String PARAM_MINUTES = "minutes";
+        public static final String PARAM_DAY = "day";
+
+        /** The content URI for the times room and teacher (either may be null) are both free for minutes */
+        public static Uri buildFreeSlotsUri(String room, String teacher, int minutes) {
+            Uri.Builder builder = CONTENT_URI.buildUpon().appendPath(PATH_FREE);
+            if (room != null) {
+                builder.appendQueryParameter(PARAM_ROOM, room);
+            }
+            if (teacher != null) {
+                builder.appendQueryParameter(PARAM_TEACHER, teacher);
+            }
+            return builder.appendQueryParameter(PARAM_MINUTES, String.valueOf(minutes)).build();
+        }
+
+        /**
+         * Query parameter of an insert or update URI, "true" saves the courses even if they double
+         * book a room or teacher. Otherwise such a write is rejected with an IllegalArgumentException.
+         */
+        public static final String PARAM_ALLOW_CONFLICTS = "allow_conflicts";
+
+        /**
+         * Query parameter of a delete URI, "true" hides the courses at once and keeps them for
+         * METHOD_UNDO_DELETE until DELETE_UNDO_WINDOW_MS has passed, rather than deleting them.
+         */
+        public static final String PARAM_SOFT = "soft";
+
+        /**
+         * Query parameter of a query or export URI, an archived term to read instead of the
+         * current courses. Archived terms are read only and have no double bookings or free time
+         * routes. The courses URI alone takes several terms separated by commas, TERM_CURRENT
+         * among them, and returns every term's courses with their COLUMN_TERM. Ids are only
+         * unique within a term.
+         */
+        public static final String PARAM_TERM = "term";
+        public static final String COLUMN_TERM = "term";
+
+        /**
+         * Insert or bulk insert complete courses here to update any course with the same name,
+         * day and time instead of adding a second one, the three together identify a course.
+         * A course that already holds the given values isn't written and no change is notified,
+         * so repeating a sync is cheap. insert() returns the course's uri, new or existing.
+         * A plain insert of a course whose name, day and time are taken throws an
+         * IllegalArgumentException.
+         */
+        public static final Uri UPSERT_URI = Uri.withAppendedPath(CONTENT_URI, PATH_UPSERT);
+
+        /**
+         * Columns of a changes row besides _id (the course) and the course's columns: the sequence
+         * number of the course's latest change and 1 if that change deleted it, 0 if not. A
+         * deleted course's own columns are null.
+         */
+        public static final String COLUMN_CHANGE_SEQUENCE = "change_seq";
+        public static final String COLUMN_CHANGE_DELETED = "deleted";
+
+        /**
+         * The content URI for every course inserted, updated or deleted after change sequence
+         * since, once each in its latest state, in sequence order. Start from 0 for every course,
+         * then from the highest change_seq seen. PARAM_LIMIT caps the rows returned.
+         */
+        public static Uri buildChangesUri(long since) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_CHANGES)
+                    .appendPath(String.valueOf(since))
+                    .build();
+        }
+
+        /**
+         * Columns of a stats row besides _id: the group (the day of week 1 to 7, or 0 for courses
+         * whose day didn't parse, the teacher or the room), how many live courses it has and their
+         * scheduled minutes per week. Only groups with courses have a row, ordered by the group.
+         */
+        public static final String COLUMN_STATS_GROUP = "stats_group";
+        public static final String COLUMN_STATS_COURSES = "course_count";
+        public static final String COLUMN_STATS_MINUTES = "total_minutes";
+
+        /**
+         * The content URI for the statistics of every day, teacher or room, groupBy is PATH_DAY,
+         * PATH_TEACHER or PATH_ROOM. Reading them costs the same however many courses there are.
+         */
+        public static Uri buildStatsUri(String groupBy) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_STATS)
+                    .appendPath(groupBy)
+                    .build();
+        }
+
+        /**
+         * The content URI for courses whose name, teacher or room contain words starting with
+         * each word of query, best matches first. query must not be empty.
+         */
+        public static Uri buildSearchUri(String query) {
+            return CONTENT_URI.buildUpon()
+                    .appendPath(PATH_SEARCH)
+                    .appendPath(query)
+                    .build();
+        }
+
+    }
+}
+
+
+
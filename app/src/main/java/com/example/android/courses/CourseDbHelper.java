@@ -1,34 +1,776 @@
-package com.example.android.courses;
-
-import android.content.Context;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
-
-public class CourseDbHelper extends SQLiteOpenHelper {
-    public static final int DATABASE_VERSION=1;
-    public static final String DATABASE_NAME= "schedule.db";
-
-    public CourseDbHelper(Context context){
-        super(context,DATABASE_NAME,null,DATABASE_VERSION);
-    }
-    public void onCreate(SQLiteDatabase db) {
-        String SQL_CREATE_ENTRIES=
-                "CREATE TABLE " + CourseContract.CourseEntry.TABLE_NAME + "(" +
-                        CourseContract.CourseEntry._ID+" INTEGER PRIMARY KEY AUTOINCREMENT,"+
-                        CourseContract.CourseEntry.COLUMN_COURSE_NAME+" TEXT NOT NULL,"+
-                        CourseContract.CourseEntry.COLUMN_COURSE_ROOM+" TEXT NOT NULL,"+
-                        CourseContract.CourseEntry.COLUMN_COURSE_TEACHER+" TEXT NOT NULL,"+
-                        CourseContract.CourseEntry.COLUMN_COURSE_TIME+" TEXT NOT NULL,"+
-                        CourseContract.CourseEntry.COLUMN_COURSE_DAY+" TEXT NOT NULL);";
-        db.execSQL(SQL_CREATE_ENTRIES);
-    }
-    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        String SQL_DELETE_ENTRIES=
-                "DROP TABLE IF EXISTS " + CourseContract.CourseEntry.TABLE_NAME;
-        db.execSQL(SQL_DELETE_ENTRIES);
-        onCreate(db);
-    }
-    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        onUpgrade(db, oldVersion, newVersion);
-    }
-}
+package com.example.android.courses;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class CourseDbHelper extends SQLiteOpenHelper {
+    public static final String LOG_TAG = CourseDbHelper.class.getSimpleName();
+
+    public static final int DATABASE_VERSION=14;
+    public static final String DATABASE_NAME= "schedule.db";
+    /** Database files of archived terms are ARCHIVE_PREFIX + term + ARCHIVE_SUFFIX, see CourseTerms */
+    static final String ARCHIVE_PREFIX = "schedule-";
+    static final String ARCHIVE_SUFFIX = ".db";
+
+    /**
+     * Secondary indexes on the courses table, added in version 2. Since version 8 the teacher and
+     * room indexes go on to day of week and start minute, so their courses come back in week order.
+     */
+    static final String INDEX_DAY_TIME = "courses_day_time";
+    static final String INDEX_TEACHER = "courses_teacher";
+    static final String INDEX_ROOM = "courses_room";
+    /** Index for time range queries on the normalized columns, added in version 3 */
+    static final String INDEX_DAY_START = "courses_day_start";
+    /** Full text index over name, teacher and room, docid is the course _id, added in version 4 */
+    static final String FTS_TABLE_NAME = "courses_fts";
+    /** Index that serves name ordered pages of the catalog, added in version 5 */
+    static final String INDEX_NAME = "courses_name";
+
+    /**
+     * Since version 6 the course rows live in COURSE_ROWS_TABLE and refer to their room and
+     * teacher by id. CourseEntry.TABLE_NAME is a view joining the names back in, it's what
+     * everything reads; writes go to the rows table.
+     */
+    static final String COURSE_ROWS_TABLE = "course_rows";
+    static final String COLUMN_ROOM_ID = "room_id";
+    static final String COLUMN_TEACHER_ID = "teacher_id";
+    /** Each room and teacher name once, with _id and name columns */
+    static final String ROOMS_TABLE = "rooms";
+    static final String TEACHERS_TABLE = "teachers";
+    static final String COLUMN_NAME = "name";
+
+    /**
+     * Change log for incremental sync, added in version 7: one row per course that ever existed,
+     * replaced with a new sequence number each time the course is written, kept as a tombstone
+     * with deleted=1 when it's deleted. Maintained by triggers on COURSE_ROWS_TABLE.
+     */
+    static final String CHANGES_TABLE = "course_changes";
+    static final String COLUMN_SEQUENCE = "seq";
+    static final String COLUMN_COURSE_ID = "course_id";
+
+    /**
+     * Soft deletes, added in version 9: a deleted course keeps its row with the generation of the
+     * delete that hid it, an id in DELETIONS_TABLE with the time of the delete, until the purger
+     * removes it. The courses view only shows rows matching LIVE_SELECTION. Since version 12
+     * hiding and restoring rows doesn't fire the triggers that keep the change log, keys and
+     * statistics, see generationBookkeeping.
+     */
+    static final String COLUMN_DELETED_GENERATION = "deleted_generation";
+    static final String LIVE_SELECTION = COLUMN_DELETED_GENERATION + " IS NULL";
+    static final String DELETIONS_TABLE = "course_deletions";
+    static final String COLUMN_DELETED_AT = "deleted_at";
+    static final String INDEX_DELETED = "course_rows_deleted";
+
+    /**
+     * The natural key of a course, added in version 10: name, day and time are unique among live
+     * courses. Soft deleted rows may share them, so rather than a unique index on the rows
+     * (SQLite here has no partial indexes) triggers keep this table's primary key in step with
+     * the live rows, and a write that would duplicate a key fails on it. Duplicates from before
+     * version 10 are live rows without a key, see migrateToVersion10.
+     */
+    static final String KEYS_TABLE = "course_keys";
+
+    /**
+     * Course count and scheduled minutes of the live courses per day of week, teacher and room,
+     * added in version 11 and kept up to date by triggers, so statistics cost a read per group.
+     * A row is a kind of group and its group id: the day of week (0 when the day didn't parse),
+     * the teacher's id or the room's id. Groups without courses are removed.
+     */
+    static final String STATS_TABLE = "course_stats";
+    static final String COLUMN_STATS_KIND = "kind";
+    static final String COLUMN_STATS_GROUP_ID = "group_id";
+    static final int STATS_DAY = 0;
+    static final int STATS_TEACHER = 1;
+    static final int STATS_ROOM = 2;
+    /** The columns of a course row the statistics are made of */
+    private static final String STATS_COLUMNS = COLUMN_ROOM_ID + "," + COLUMN_TEACHER_ID + "," +
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + "," +
+            CourseEntry.COLUMN_COURSE_END_MINUTE;
+
+    /** Pages the write-ahead log may grow to before SQLite checkpoints it back into the database */
+    private static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+    /** Bytes the write-ahead log file is truncated back to after a checkpoint, so one big import doesn't leave a huge file behind */
+    private static final long WAL_SIZE_LIMIT_BYTES = 1024 * 1024;
+
+    /** true for an archived term's database, which is written once and then only read */
+    private final boolean mArchive;
+
+    public CourseDbHelper(Context context){
+        this(context, null);
+    }
+
+    /** The database of an archived term, or of the current courses for a null term */
+    CourseDbHelper(Context context, String term) {
+        super(context, term == null ? DATABASE_NAME : ARCHIVE_PREFIX + term + ARCHIVE_SUFFIX, null, DATABASE_VERSION);
+        mArchive = term != null;
+        // write-ahead logging lets the loaders keep reading while a long write is in progress,
+        // an archive has no such writes and keeps a rollback journal so it stays a single file
+        if (!mArchive && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
+    }
+
+    /**
+     * Creates the version 1 schema and then runs the same migration steps an upgrading install
+     * would, so a fresh database and an upgraded one always end up identical.
+     */
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_VERSION_1);
+        migrate(db, 1, DATABASE_VERSION);
+    }
+
+    /** The version 1 schema, the courses table every migration starts from */
+    static final String SQL_CREATE_VERSION_1=
+            "CREATE TABLE " + CourseEntry.TABLE_NAME + "(" +
+                    CourseEntry._ID+" INTEGER PRIMARY KEY AUTOINCREMENT,"+
+                    CourseEntry.COLUMN_COURSE_NAME+" TEXT NOT NULL,"+
+                    CourseEntry.COLUMN_COURSE_ROOM+" TEXT NOT NULL,"+
+                    CourseEntry.COLUMN_COURSE_TEACHER+" TEXT NOT NULL,"+
+                    CourseEntry.COLUMN_COURSE_TIME+" TEXT NOT NULL,"+
+                    CourseEntry.COLUMN_COURSE_DAY+" TEXT NOT NULL);";
+
+    /** Keeps the user's courses and applies each migration step between the two versions in order */
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        migrate(db, oldVersion, newVersion);
+    }
+
+    /**
+     * A newer build wrote a schema this one doesn't know how to read, and there are no steps
+     * to go backwards, so start over with the schema this version expects.
+     */
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // views first, then full text tables (which drop their own shadow tables), then the rest
+        Cursor cursor = db.rawQuery("SELECT type, name, sql FROM sqlite_master WHERE type IN ('table','view')" +
+                " AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata'" +
+                " ORDER BY type='table', sql NOT LIKE 'CREATE VIRTUAL%'", null);
+        try {
+            while (cursor.moveToNext()) {
+                db.execSQL("DROP " + cursor.getString(0).toUpperCase(Locale.US) + " IF EXISTS " + cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        onCreate(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (!db.isReadOnly()) {
+            if (!mArchive) {
+                configureWriteAheadLog(db);
+            }
+            db.execSQL("PRAGMA foreign_keys=ON");//course rows must point at a real room and teacher
+        }
+        if (BuildConfig.DEBUG) {
+            checkQueryPlans(db);
+        }
+    }
+
+    /**
+     * WAL with synchronous=NORMAL only syncs at checkpoints, a crash can't corrupt the database
+     * and at worst a power cut loses the last few commits. The autocheckpoint and size limit keep
+     * the log, and so the time readers spend searching it, from growing without bound.
+     */
+    private static void configureWriteAheadLog(SQLiteDatabase db) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            db.enableWriteAheadLogging();
+        }
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        DatabaseUtils.longForQuery(db, "PRAGMA wal_autocheckpoint=" + WAL_AUTOCHECKPOINT_PAGES, null);
+        DatabaseUtils.longForQuery(db, "PRAGMA journal_size_limit=" + WAL_SIZE_LIMIT_BYTES, null);
+    }
+
+    /**
+     * Run migration steps fromVersion+1 .. toVersion in order. Step N takes the schema from
+     * version N-1 to N; SQLiteOpenHelper already wraps this in a transaction.
+     */
+    static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (int version = fromVersion + 1; version <= toVersion; version++) {
+            switch (version) {
+                case 2:
+                    migrateToVersion2(db);
+                    break;
+                case 3:
+                    migrateToVersion3(db);
+                    break;
+                case 4:
+                    migrateToVersion4(db);
+                    break;
+                case 5:
+                    migrateToVersion5(db);
+                    break;
+                case 6:
+                    migrateToVersion6(db);
+                    break;
+                case 7:
+                    migrateToVersion7(db);
+                    break;
+                case 8:
+                    migrateToVersion8(db);
+                    break;
+                case 9:
+                    migrateToVersion9(db);
+                    break;
+                case 10:
+                    migrateToVersion10(db);
+                    break;
+                case 11:
+                    migrateToVersion11(db);
+                    break;
+                case 12:
+                    migrateToVersion12(db);
+                    break;
+                case 13:
+                    migrateToVersion13(db);
+                    break;
+                case 14:
+                    migrateToVersion14(db);
+                    break;
+                default:
+                    throw new IllegalStateException("No migration to database version " + version);
+            }
+        }
+    }
+
+    /** version 2: secondary indexes so filtered queries stop scanning the whole table */
+    private static void migrateToVersion2(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_DAY_TIME + " ON " + CourseEntry.TABLE_NAME +
+                "(" + CourseEntry.COLUMN_COURSE_DAY + "," + CourseEntry.COLUMN_COURSE_TIME + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TEACHER + " ON " + CourseEntry.TABLE_NAME +
+                "(" + CourseEntry.COLUMN_COURSE_TEACHER + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_ROOM + " ON " + CourseEntry.TABLE_NAME +
+                "(" + CourseEntry.COLUMN_COURSE_ROOM + ")");
+    }
+
+    /** version 3: normalized day of week and start/end minutes, backfilled from the text columns */
+    private static void migrateToVersion3(SQLiteDatabase db) {
+        String alter = "ALTER TABLE " + CourseEntry.TABLE_NAME + " ADD COLUMN ";
+        db.execSQL(alter + CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + " INTEGER");
+        db.execSQL(alter + CourseEntry.COLUMN_COURSE_START_MINUTE + " INTEGER");
+        db.execSQL(alter + CourseEntry.COLUMN_COURSE_END_MINUTE + " INTEGER");
+
+        SQLiteStatement backfill = db.compileStatement("UPDATE " + CourseEntry.TABLE_NAME + " SET " +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "=?," +
+                CourseEntry.COLUMN_COURSE_START_MINUTE + "=?," +
+                CourseEntry.COLUMN_COURSE_END_MINUTE + "=? WHERE " + CourseEntry._ID + "=?");
+        Cursor cursor = db.query(CourseEntry.TABLE_NAME, new String[]{CourseEntry._ID,
+                CourseEntry.COLUMN_COURSE_DAY, CourseEntry.COLUMN_COURSE_TIME}, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                backfill.clearBindings();
+                Integer dayOfWeek = CourseTimes.parseDayOfWeek(cursor.getString(1));
+                int[] range = CourseTimes.parseTimeRange(cursor.getString(2));
+                if (dayOfWeek != null) {
+                    backfill.bindLong(1, dayOfWeek);
+                }
+                if (range != null) {
+                    backfill.bindLong(2, range[0]);
+                    backfill.bindLong(3, range[1]);
+                }
+                backfill.bindLong(4, cursor.getLong(0));
+                backfill.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            backfill.close();
+        }
+
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_DAY_START + " ON " + CourseEntry.TABLE_NAME + "(" +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + ")");
+    }
+
+    /** version 4: FTS4 shadow table for search, kept in sync with courses by triggers */
+    private static void migrateToVersion4(SQLiteDatabase db) {
+        String columns = CourseEntry.COLUMN_COURSE_NAME + "," +
+                CourseEntry.COLUMN_COURSE_TEACHER + "," + CourseEntry.COLUMN_COURSE_ROOM;
+        db.execSQL("CREATE VIRTUAL TABLE " + FTS_TABLE_NAME + " USING fts4(" + columns + ")");
+
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_insert AFTER INSERT ON " + CourseEntry.TABLE_NAME +
+                " BEGIN INSERT INTO " + FTS_TABLE_NAME + "(docid," + columns + ") VALUES (new." +
+                CourseEntry._ID + ",new." + CourseEntry.COLUMN_COURSE_NAME + ",new." +
+                CourseEntry.COLUMN_COURSE_TEACHER + ",new." + CourseEntry.COLUMN_COURSE_ROOM + "); END");
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_update AFTER UPDATE OF " + columns +
+                " ON " + CourseEntry.TABLE_NAME + " BEGIN UPDATE " + FTS_TABLE_NAME + " SET " +
+                CourseEntry.COLUMN_COURSE_NAME + "=new." + CourseEntry.COLUMN_COURSE_NAME + "," +
+                CourseEntry.COLUMN_COURSE_TEACHER + "=new." + CourseEntry.COLUMN_COURSE_TEACHER + "," +
+                CourseEntry.COLUMN_COURSE_ROOM + "=new." + CourseEntry.COLUMN_COURSE_ROOM +
+                " WHERE docid=old." + CourseEntry._ID + "; END");
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_delete AFTER DELETE ON " + CourseEntry.TABLE_NAME +
+                " BEGIN DELETE FROM " + FTS_TABLE_NAME + " WHERE docid=old." + CourseEntry._ID + "; END");
+
+        db.execSQL("INSERT INTO " + FTS_TABLE_NAME + "(docid," + columns + ") SELECT " +
+                CourseEntry._ID + "," + columns + " FROM " + CourseEntry.TABLE_NAME);
+    }
+
+    /** version 5: name index for keyset paging, entries are ordered by (name, _id) like the pages */
+    private static void migrateToVersion5(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_NAME + " ON " + CourseEntry.TABLE_NAME +
+                "(" + CourseEntry.COLUMN_COURSE_NAME + ")");
+    }
+
+    /**
+     * version 6: rooms and teachers move to their own tables and each course keeps integer
+     * references to them. The rows move to course_rows and courses becomes a view that joins the
+     * names back in, so every projection and selection written against courses keeps working.
+     */
+    private static void migrateToVersion6(SQLiteDatabase db) {
+        String courses = CourseEntry.TABLE_NAME;
+        String rows = COURSE_ROWS_TABLE;
+        db.execSQL(createNameTable(ROOMS_TABLE));
+        db.execSQL(createNameTable(TEACHERS_TABLE));
+        db.execSQL("INSERT INTO " + ROOMS_TABLE + "(" + COLUMN_NAME + ") SELECT DISTINCT " +
+                CourseEntry.COLUMN_COURSE_ROOM + " FROM " + courses);
+        db.execSQL("INSERT INTO " + TEACHERS_TABLE + "(" + COLUMN_NAME + ") SELECT DISTINCT " +
+                CourseEntry.COLUMN_COURSE_TEACHER + " FROM " + courses);
+
+        db.execSQL("CREATE TABLE " + rows + "(" +
+                CourseEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                CourseEntry.COLUMN_COURSE_NAME + " TEXT NOT NULL," +
+                COLUMN_ROOM_ID + " INTEGER NOT NULL REFERENCES " + ROOMS_TABLE + "(" + CourseEntry._ID + ")," +
+                COLUMN_TEACHER_ID + " INTEGER NOT NULL REFERENCES " + TEACHERS_TABLE + "(" + CourseEntry._ID + ")," +
+                CourseEntry.COLUMN_COURSE_TIME + " TEXT NOT NULL," +
+                CourseEntry.COLUMN_COURSE_DAY + " TEXT NOT NULL," +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + " INTEGER," +
+                CourseEntry.COLUMN_COURSE_START_MINUTE + " INTEGER," +
+                CourseEntry.COLUMN_COURSE_END_MINUTE + " INTEGER)");
+        String copied = CourseEntry.COLUMN_COURSE_TIME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + "," +
+                CourseEntry.COLUMN_COURSE_END_MINUTE;
+        db.execSQL("INSERT INTO " + rows + "(" + CourseEntry._ID + "," + CourseEntry.COLUMN_COURSE_NAME + "," +
+                COLUMN_ROOM_ID + "," + COLUMN_TEACHER_ID + "," + copied + ") SELECT " +
+                courses + "." + CourseEntry._ID + "," + courses + "." + CourseEntry.COLUMN_COURSE_NAME + "," +
+                ROOMS_TABLE + "." + CourseEntry._ID + "," + TEACHERS_TABLE + "." + CourseEntry._ID + "," +
+                copied + " FROM " + courses +
+                " JOIN " + ROOMS_TABLE + " ON " + ROOMS_TABLE + "." + COLUMN_NAME + "=" + CourseEntry.COLUMN_COURSE_ROOM +
+                " JOIN " + TEACHERS_TABLE + " ON " + TEACHERS_TABLE + "." + COLUMN_NAME + "=" + CourseEntry.COLUMN_COURSE_TEACHER);
+        // carry the AUTOINCREMENT high-water mark over so ids of deleted courses are never reused
+        db.execSQL("DELETE FROM sqlite_sequence WHERE name='" + rows + "'");
+        db.execSQL("INSERT INTO sqlite_sequence(name,seq) SELECT '" + rows + "',seq FROM sqlite_sequence WHERE name='" + courses + "'");
+        db.execSQL("DROP TABLE " + courses);//its indexes and search triggers go with it
+
+        db.execSQL("CREATE VIEW " + courses + " AS " + selectCourseRows());
+
+        db.execSQL("CREATE INDEX " + INDEX_DAY_TIME + " ON " + rows + "(" +
+                CourseEntry.COLUMN_COURSE_DAY + "," + CourseEntry.COLUMN_COURSE_TIME + ")");
+        db.execSQL("CREATE INDEX " + INDEX_TEACHER + " ON " + rows + "(" + COLUMN_TEACHER_ID + ")");
+        db.execSQL("CREATE INDEX " + INDEX_ROOM + " ON " + rows + "(" + COLUMN_ROOM_ID + ")");
+        db.execSQL("CREATE INDEX " + INDEX_DAY_START + " ON " + rows + "(" +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + ")");
+        db.execSQL("CREATE INDEX " + INDEX_NAME + " ON " + rows + "(" + CourseEntry.COLUMN_COURSE_NAME + ")");
+
+        // the search index keeps its documents, only the triggers feeding it now look the names up
+        String ftsColumns = CourseEntry.COLUMN_COURSE_NAME + "," +
+                CourseEntry.COLUMN_COURSE_TEACHER + "," + CourseEntry.COLUMN_COURSE_ROOM;
+        String newNames = "new." + CourseEntry.COLUMN_COURSE_NAME + "," +
+                nameOf(TEACHERS_TABLE, "new." + COLUMN_TEACHER_ID) + "," + nameOf(ROOMS_TABLE, "new." + COLUMN_ROOM_ID);
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_insert AFTER INSERT ON " + rows +
+                " BEGIN INSERT INTO " + FTS_TABLE_NAME + "(docid," + ftsColumns + ") VALUES (new." +
+                CourseEntry._ID + "," + newNames + "); END");
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_update AFTER UPDATE OF " + CourseEntry.COLUMN_COURSE_NAME +
+                "," + COLUMN_TEACHER_ID + "," + COLUMN_ROOM_ID + " ON " + rows + " BEGIN UPDATE " + FTS_TABLE_NAME +
+                " SET " + CourseEntry.COLUMN_COURSE_NAME + "=new." + CourseEntry.COLUMN_COURSE_NAME + "," +
+                CourseEntry.COLUMN_COURSE_TEACHER + "=" + nameOf(TEACHERS_TABLE, "new." + COLUMN_TEACHER_ID) + "," +
+                CourseEntry.COLUMN_COURSE_ROOM + "=" + nameOf(ROOMS_TABLE, "new." + COLUMN_ROOM_ID) +
+                " WHERE docid=old." + CourseEntry._ID + "; END");
+        db.execSQL("CREATE TRIGGER " + FTS_TABLE_NAME + "_delete AFTER DELETE ON " + rows +
+                " BEGIN DELETE FROM " + FTS_TABLE_NAME + " WHERE docid=old." + CourseEntry._ID + "; END");
+    }
+
+    /** version 7: the change log, every existing course counts as changed once */
+    private static void migrateToVersion7(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + CHANGES_TABLE + "(" +
+                COLUMN_SEQUENCE + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_COURSE_ID + " INTEGER NOT NULL UNIQUE," +
+                CourseEntry.COLUMN_CHANGE_DELETED + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO " + CHANGES_TABLE + "(" + COLUMN_COURSE_ID + ") SELECT " + CourseEntry._ID +
+                " FROM " + COURSE_ROWS_TABLE + " ORDER BY " + CourseEntry._ID);
+        // REPLACE drops the course's previous entry, so it takes the next sequence number and the log stays one row per course
+        String logNew = "INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" + COLUMN_COURSE_ID + "," +
+                CourseEntry.COLUMN_CHANGE_DELETED + ") VALUES (new." + CourseEntry._ID + ",0); ";
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_insert AFTER INSERT ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + logNew + "END");
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_update AFTER UPDATE ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + logNew + "END");
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_delete AFTER DELETE ON " + COURSE_ROWS_TABLE +
+                " BEGIN INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" + COLUMN_COURSE_ID + "," +
+                CourseEntry.COLUMN_CHANGE_DELETED + ") VALUES (old." + CourseEntry._ID + ",1); END");
+    }
+
+    /** version 8: teacher and room indexes that also serve the week order of their routes */
+    private static void migrateToVersion8(SQLiteDatabase db) {
+        String weekOrder = "," + CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + ")";
+        db.execSQL("DROP INDEX IF EXISTS " + INDEX_TEACHER);
+        db.execSQL("DROP INDEX IF EXISTS " + INDEX_ROOM);
+        db.execSQL("CREATE INDEX " + INDEX_TEACHER + " ON " + COURSE_ROWS_TABLE + "(" + COLUMN_TEACHER_ID + weekOrder);
+        db.execSQL("CREATE INDEX " + INDEX_ROOM + " ON " + COURSE_ROWS_TABLE + "(" + COLUMN_ROOM_ID + weekOrder);
+    }
+
+    /**
+     * version 9: soft deletes. The view hides deleted rows, and the change log records a soft
+     * delete as a delete and its undo as a change.
+     */
+    private static void migrateToVersion9(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + COURSE_ROWS_TABLE + " ADD COLUMN " + COLUMN_DELETED_GENERATION + " INTEGER");
+        db.execSQL("CREATE TABLE " + DELETIONS_TABLE + "(" + CourseEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_DELETED_AT + " INTEGER NOT NULL)");
+        db.execSQL("CREATE INDEX " + INDEX_DELETED + " ON " + COURSE_ROWS_TABLE + "(" + COLUMN_DELETED_GENERATION + ")");
+
+        db.execSQL("DROP VIEW " + CourseEntry.TABLE_NAME);
+        db.execSQL("CREATE VIEW " + CourseEntry.TABLE_NAME + " AS " + selectCourseRows() + " WHERE " + LIVE_SELECTION);
+
+        db.execSQL("DROP TRIGGER " + CHANGES_TABLE + "_update");
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_update AFTER UPDATE ON " + COURSE_ROWS_TABLE +
+                " BEGIN INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" + COLUMN_COURSE_ID + "," +
+                CourseEntry.COLUMN_CHANGE_DELETED + ") VALUES (new." + CourseEntry._ID + ",new." +
+                COLUMN_DELETED_GENERATION + " IS NOT NULL); END");
+    }
+
+    /**
+     * version 10: the natural key. Live courses that repeat an earlier course's name, day and time
+     * stay, they may differ in room or teacher and a migration mustn't lose courses, but only the
+     * first one of each gets the key. The others are reported in the log, and an edit that keeps
+     * their name, day and time is refused as a duplicate until the user tells them apart.
+     */
+    private static void migrateToVersion10(SQLiteDatabase db) {
+        String key = CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                CourseEntry.COLUMN_COURSE_TIME;
+        db.execSQL("CREATE TABLE " + KEYS_TABLE + "(" +
+                CourseEntry.COLUMN_COURSE_NAME + " TEXT NOT NULL," +
+                CourseEntry.COLUMN_COURSE_DAY + " TEXT NOT NULL," +
+                CourseEntry.COLUMN_COURSE_TIME + " TEXT NOT NULL," +
+                COLUMN_COURSE_ID + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + key + "))");
+        db.execSQL("INSERT OR IGNORE INTO " + KEYS_TABLE + "(" + key + "," + COLUMN_COURSE_ID + ") SELECT " + key +
+                "," + CourseEntry._ID + " FROM " + COURSE_ROWS_TABLE + " WHERE " + LIVE_SELECTION +
+                " ORDER BY " + CourseEntry._ID);
+        long unkeyed = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + COURSE_ROWS_TABLE + " WHERE " +
+                LIVE_SELECTION + " AND " + CourseEntry._ID + " NOT IN (SELECT " + COLUMN_COURSE_ID + " FROM " +
+                KEYS_TABLE + ")", null);
+        if (unkeyed != 0) {
+            Log.w(LOG_TAG, unkeyed + " courses repeat an earlier course's name, day and time, kept without a key");
+        }
+
+        db.execSQL("CREATE TRIGGER " + KEYS_TABLE + "_insert AFTER INSERT ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + addNewKey() + "END");
+        db.execSQL("CREATE TRIGGER " + KEYS_TABLE + "_update AFTER UPDATE OF " + key + "," +
+                COLUMN_DELETED_GENERATION + " ON " + COURSE_ROWS_TABLE + " BEGIN " + dropOldKey() + addNewKey() + "END");
+        db.execSQL("CREATE TRIGGER " + KEYS_TABLE + "_delete AFTER DELETE ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + dropOldKey() + "END");
+    }
+
+    /** trigger statement that gives a live new row its key */
+    private static String addNewKey() {
+        return "INSERT INTO " + KEYS_TABLE + "(" + CourseEntry.COLUMN_COURSE_NAME + "," +
+                CourseEntry.COLUMN_COURSE_DAY + "," + CourseEntry.COLUMN_COURSE_TIME + "," + COLUMN_COURSE_ID +
+                ") SELECT new." + CourseEntry.COLUMN_COURSE_NAME + ",new." + CourseEntry.COLUMN_COURSE_DAY + ",new." +
+                CourseEntry.COLUMN_COURSE_TIME + ",new." + CourseEntry._ID + " WHERE new." + LIVE_SELECTION + "; ";
+    }
+
+    /** trigger statement that drops the key of an old row, if it held one */
+    private static String dropOldKey() {
+        return "DELETE FROM " + KEYS_TABLE + " WHERE " +
+                CourseEntry.COLUMN_COURSE_NAME + "=old." + CourseEntry.COLUMN_COURSE_NAME + " AND " +
+                CourseEntry.COLUMN_COURSE_DAY + "=old." + CourseEntry.COLUMN_COURSE_DAY + " AND " +
+                CourseEntry.COLUMN_COURSE_TIME + "=old." + CourseEntry.COLUMN_COURSE_TIME + " AND " +
+                COLUMN_COURSE_ID + "=old." + CourseEntry._ID + "; ";
+    }
+
+    /** version 11: the statistics table, filled by grouping the courses and maintained by triggers from then on */
+    private static void migrateToVersion11(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + STATS_TABLE + "(" +
+                COLUMN_STATS_KIND + " INTEGER NOT NULL," +
+                COLUMN_STATS_GROUP_ID + " INTEGER NOT NULL," +
+                CourseEntry.COLUMN_STATS_COURSES + " INTEGER NOT NULL," +
+                CourseEntry.COLUMN_STATS_MINUTES + " INTEGER NOT NULL," +
+                "PRIMARY KEY (" + COLUMN_STATS_KIND + "," + COLUMN_STATS_GROUP_ID + "))");
+        for (int kind = STATS_DAY; kind <= STATS_ROOM; kind++) {
+            db.execSQL("INSERT INTO " + STATS_TABLE + " SELECT " + kind + "," + statsGroup(kind, "") +
+                    ",COUNT(*),SUM(" + courseMinutes("") + ") FROM " + COURSE_ROWS_TABLE +
+                    " WHERE " + LIVE_SELECTION + " GROUP BY " + statsGroup(kind, ""));
+        }
+
+        db.execSQL("CREATE TRIGGER " + STATS_TABLE + "_insert AFTER INSERT ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + addNewStats() + "END");
+        db.execSQL("CREATE TRIGGER " + STATS_TABLE + "_update AFTER UPDATE OF " + STATS_COLUMNS + "," +
+                COLUMN_DELETED_GENERATION + " ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + removeOldStats() + addNewStats() + "END");
+        db.execSQL("CREATE TRIGGER " + STATS_TABLE + "_delete AFTER DELETE ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + removeOldStats() + "END");
+    }
+
+    /** trigger statements that add a live new row to its groups, creating them as needed */
+    private static String addNewStats() {
+        StringBuilder addNew = new StringBuilder();
+        for (int kind = STATS_DAY; kind <= STATS_ROOM; kind++) {
+            String newGroup = " WHERE " + COLUMN_STATS_KIND + "=" + kind + " AND " + COLUMN_STATS_GROUP_ID + "=" +
+                    statsGroup(kind, "new.");
+            addNew.append("INSERT OR IGNORE INTO ").append(STATS_TABLE).append(" SELECT ").append(kind)
+                    .append(",").append(statsGroup(kind, "new.")).append(",0,0 WHERE new.")
+                    .append(LIVE_SELECTION).append("; ")
+                    .append(updateStats("+", "new.")).append(newGroup)
+                    .append(" AND new.").append(LIVE_SELECTION).append("; ");
+        }
+        return addNew.toString();
+    }
+
+    /** trigger statements that take a live old row out of its groups, dropping those left empty */
+    private static String removeOldStats() {
+        StringBuilder removeOld = new StringBuilder();
+        for (int kind = STATS_DAY; kind <= STATS_ROOM; kind++) {
+            String oldGroup = " WHERE " + COLUMN_STATS_KIND + "=" + kind + " AND " + COLUMN_STATS_GROUP_ID + "=" +
+                    statsGroup(kind, "old.");
+            removeOld.append(updateStats("-", "old.")).append(oldGroup)
+                    .append(" AND old.").append(LIVE_SELECTION).append("; ")
+                    .append("DELETE FROM ").append(STATS_TABLE).append(oldGroup)
+                    .append(" AND ").append(CourseEntry.COLUMN_STATS_COURSES).append("=0; ");
+        }
+        return removeOld.toString();
+    }
+
+    /**
+     * version 12: hiding and restoring courses no longer fires the change log, key and statistics
+     * triggers once per row. Their update triggers skip COLUMN_DELETED_GENERATION, and a soft
+     * delete or its undo does that bookkeeping with generationBookkeeping(), a few statements for
+     * the whole generation. Edits only touch live rows, so the change log's update trigger logs
+     * them as changed.
+     */
+    private static void migrateToVersion12(SQLiteDatabase db) {
+        String key = CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                CourseEntry.COLUMN_COURSE_TIME;
+        db.execSQL("DROP TRIGGER " + CHANGES_TABLE + "_update");
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_update AFTER UPDATE OF " + key + "," + STATS_COLUMNS +
+                " ON " + COURSE_ROWS_TABLE + " BEGIN INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" +
+                COLUMN_COURSE_ID + "," + CourseEntry.COLUMN_CHANGE_DELETED + ") VALUES (new." +
+                CourseEntry._ID + ",0); END");
+        db.execSQL("DROP TRIGGER " + KEYS_TABLE + "_update");
+        db.execSQL("CREATE TRIGGER " + KEYS_TABLE + "_update AFTER UPDATE OF " + key + " ON " + COURSE_ROWS_TABLE +
+                " BEGIN " + dropOldKey() + addNewKey() + "END");
+        db.execSQL("DROP TRIGGER " + STATS_TABLE + "_update");
+        db.execSQL("CREATE TRIGGER " + STATS_TABLE + "_update AFTER UPDATE OF " + STATS_COLUMNS + " ON " +
+                COURSE_ROWS_TABLE + " BEGIN " + removeOldStats() + addNewStats() + "END");
+    }
+
+    /**
+     * version 13: the key trigger only runs when an update changes the name, day or time. An
+     * editor save writes every column, and a duplicate kept without a key by the version 10
+     * migration would otherwise try to take its original's key on each save and fail.
+     */
+    private static void migrateToVersion13(SQLiteDatabase db) {
+        String key = CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                CourseEntry.COLUMN_COURSE_TIME;
+        StringBuilder keyChanged = new StringBuilder();
+        for (String column : key.split(",")) {
+            keyChanged.append(keyChanged.length() == 0 ? " WHEN " : " OR ")
+                    .append("old.").append(column).append(" IS NOT new.").append(column);
+        }
+        db.execSQL("DROP TRIGGER " + KEYS_TABLE + "_update");
+        db.execSQL("CREATE TRIGGER " + KEYS_TABLE + "_update AFTER UPDATE OF " + key + " ON " + COURSE_ROWS_TABLE +
+                keyChanged + " BEGIN " + dropOldKey() + addNewKey() + "END");
+    }
+
+    /**
+     * version 14: the change log's delete trigger only logs live rows. A soft delete logs the rows
+     * it hides once, in generationBookkeeping(), and purging them later mustn't log them again
+     * under a new sequence number, as if they had been deleted twice.
+     */
+    private static void migrateToVersion14(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER " + CHANGES_TABLE + "_delete");
+        db.execSQL("CREATE TRIGGER " + CHANGES_TABLE + "_delete AFTER DELETE ON " + COURSE_ROWS_TABLE +
+                " WHEN old." + LIVE_SELECTION + " BEGIN INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" +
+                COLUMN_COURSE_ID + "," + CourseEntry.COLUMN_CHANGE_DELETED + ") VALUES (old." +
+                CourseEntry._ID + ",1); END");
+    }
+
+    /**
+     * What the triggers did row by row before version 12 when a soft delete hid rows (restore
+     * false) or its undo brought them back (restore true), for every row of a deletion generation
+     * at once: their keys, their place in the statistics and their change log entry. Each
+     * statement takes the generation as its only argument. Run them in the transaction of the
+     * soft delete after hiding the rows, or in the undo's before restoring them, while the rows
+     * still carry the generation.
+     */
+    static String[] generationBookkeeping(boolean restore) {
+        String rows = COURSE_ROWS_TABLE;
+        String ofGeneration = " FROM " + rows + " WHERE " + COLUMN_DELETED_GENERATION + "=?1";
+        List<String> statements = new ArrayList<>();
+        if (restore) {
+            // the first row of a name, day and time keeps the key as in migrateToVersion10, a duplicate
+            // from before version 10 or a course whose key was taken since comes back without one
+            statements.add("INSERT OR IGNORE INTO " + KEYS_TABLE + "(" + CourseEntry.COLUMN_COURSE_NAME + "," +
+                    CourseEntry.COLUMN_COURSE_DAY + "," + CourseEntry.COLUMN_COURSE_TIME + "," + COLUMN_COURSE_ID +
+                    ") SELECT " + CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                    CourseEntry.COLUMN_COURSE_TIME + "," + CourseEntry._ID + ofGeneration + " ORDER BY " +
+                    CourseEntry._ID);
+        } else {
+            // each row's own key, a duplicate from before version 10 has none and leaves the original's alone
+            statements.add("DELETE FROM " + KEYS_TABLE + " WHERE rowid IN (SELECT " + KEYS_TABLE + ".rowid FROM " +
+                    rows + " JOIN " + KEYS_TABLE + " ON " +
+                    KEYS_TABLE + "." + CourseEntry.COLUMN_COURSE_NAME + "=" + rows + "." + CourseEntry.COLUMN_COURSE_NAME + " AND " +
+                    KEYS_TABLE + "." + CourseEntry.COLUMN_COURSE_DAY + "=" + rows + "." + CourseEntry.COLUMN_COURSE_DAY + " AND " +
+                    KEYS_TABLE + "." + CourseEntry.COLUMN_COURSE_TIME + "=" + rows + "." + CourseEntry.COLUMN_COURSE_TIME +
+                    " WHERE " + rows + "." + COLUMN_DELETED_GENERATION + "=?1 AND " +
+                    KEYS_TABLE + "." + COLUMN_COURSE_ID + "=" + rows + "." + CourseEntry._ID + ")");
+        }
+        String sign = restore ? "+" : "-";
+        for (int kind = STATS_DAY; kind <= STATS_ROOM; kind++) {
+            String groups = " WHERE " + COLUMN_STATS_KIND + "=" + kind + " AND " + COLUMN_STATS_GROUP_ID +
+                    " IN (SELECT " + statsGroup(kind, "") + ofGeneration + ")";
+            // a group's rows of the generation, found through the teacher or room index; the days
+            // are few enough to look for among the generation's rows each
+            String inGroup = kind == STATS_DAY
+                    ? ofGeneration + " AND " + statsGroup(kind, "") + "=" + STATS_TABLE + "." + COLUMN_STATS_GROUP_ID
+                    : " FROM " + rows + " WHERE " + statsGroup(kind, "") + "=" + STATS_TABLE + "." +
+                    COLUMN_STATS_GROUP_ID + " AND +" + COLUMN_DELETED_GENERATION + "=?1";
+            if (restore) {
+                statements.add("INSERT OR IGNORE INTO " + STATS_TABLE + " SELECT DISTINCT " + kind + "," +
+                        statsGroup(kind, "") + ",0,0" + ofGeneration);
+            }
+            statements.add("UPDATE " + STATS_TABLE + " SET " +
+                    CourseEntry.COLUMN_STATS_COURSES + "=" + CourseEntry.COLUMN_STATS_COURSES + sign +
+                    "(SELECT COUNT(*)" + inGroup + ")," +
+                    CourseEntry.COLUMN_STATS_MINUTES + "=" + CourseEntry.COLUMN_STATS_MINUTES + sign +
+                    "(SELECT SUM(" + courseMinutes("") + ")" + inGroup + ")" + groups);
+            if (!restore) {
+                statements.add("DELETE FROM " + STATS_TABLE + groups + " AND " + CourseEntry.COLUMN_STATS_COURSES + "=0");
+            }
+        }
+        statements.add("INSERT OR REPLACE INTO " + CHANGES_TABLE + "(" + COLUMN_COURSE_ID + "," +
+                CourseEntry.COLUMN_CHANGE_DELETED + ") SELECT " + CourseEntry._ID + "," + (restore ? 0 : 1) +
+                ofGeneration + " ORDER BY " + CourseEntry._ID);
+        return statements.toArray(new String[statements.size()]);
+    }
+
+    /** the group id of a course row for kind, row is the "new." or "old." of a trigger or blank */
+    private static String statsGroup(int kind, String row) {
+        switch (kind) {
+            case STATS_DAY:
+                return "IFNULL(" + row + CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + ",0)";
+            case STATS_TEACHER:
+                return row + COLUMN_TEACHER_ID;
+            default:
+                return row + COLUMN_ROOM_ID;
+        }
+    }
+
+    /** the scheduled minutes of a course row, 0 when its time didn't parse */
+    private static String courseMinutes(String row) {
+        return "IFNULL(" + row + CourseEntry.COLUMN_COURSE_END_MINUTE + "-" +
+                row + CourseEntry.COLUMN_COURSE_START_MINUTE + ",0)";
+    }
+
+    /** add (sign "+") or take away (sign "-") one course row in the statistics, without the WHERE */
+    private static String updateStats(String sign, String row) {
+        return "UPDATE " + STATS_TABLE + " SET " +
+                CourseEntry.COLUMN_STATS_COURSES + "=" + CourseEntry.COLUMN_STATS_COURSES + sign + "1," +
+                CourseEntry.COLUMN_STATS_MINUTES + "=" + CourseEntry.COLUMN_STATS_MINUTES + sign +
+                courseMinutes(row);
+    }
+
+    /** every course row with its room and teacher names, the body of the courses view */
+    private static String selectCourseRows() {
+        return selectCourseRows("");
+    }
+
+    /** the same over the tables of an attached database, schema is its name and a dot */
+    static String selectCourseRows(String schema) {
+        String rows = COURSE_ROWS_TABLE;
+        return "SELECT " +
+                rows + "." + CourseEntry._ID + " AS " + CourseEntry._ID + "," +
+                rows + "." + CourseEntry.COLUMN_COURSE_NAME + " AS " + CourseEntry.COLUMN_COURSE_NAME + "," +
+                ROOMS_TABLE + "." + COLUMN_NAME + " AS " + CourseEntry.COLUMN_COURSE_ROOM + "," +
+                TEACHERS_TABLE + "." + COLUMN_NAME + " AS " + CourseEntry.COLUMN_COURSE_TEACHER + "," +
+                CourseEntry.COLUMN_COURSE_TIME + "," + CourseEntry.COLUMN_COURSE_DAY + "," +
+                CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," + CourseEntry.COLUMN_COURSE_START_MINUTE + "," +
+                CourseEntry.COLUMN_COURSE_END_MINUTE + " FROM " + schema + rows +
+                " JOIN " + schema + ROOMS_TABLE + " ON " + ROOMS_TABLE + "." + CourseEntry._ID + "=" + COLUMN_ROOM_ID +
+                " JOIN " + schema + TEACHERS_TABLE + " ON " + TEACHERS_TABLE + "." + CourseEntry._ID + "=" + COLUMN_TEACHER_ID;
+    }
+
+    private static String createNameTable(String table) {
+        return "CREATE TABLE " + table + "(" + CourseEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                COLUMN_NAME + " TEXT NOT NULL UNIQUE)";
+    }
+
+    /** subquery for the name of the room or teacher with the id idExpression */
+    private static String nameOf(String table, String idExpression) {
+        return "(SELECT " + COLUMN_NAME + " FROM " + table + " WHERE " + CourseEntry._ID + "=" + idExpression + ")";
+    }
+
+    /** Debug builds only: warn in logcat if a lookup the provider serves falls back to scanning the course rows */
+    private static void checkQueryPlans(SQLiteDatabase db) {
+        for (String scan : findTableScans(db)) {
+            Log.w(LOG_TAG, "Full table scan for " + scan);
+        }
+    }
+
+    /**
+     * EXPLAIN QUERY PLAN the lookups the provider serves, returns each one that scans the course
+     * rows as its SQL and plan. Empty when every lookup is answered from an index.
+     */
+    static List<String> findTableScans(SQLiteDatabase db) {
+        String from = " FROM " + CourseEntry.TABLE_NAME + " WHERE ";
+        String[][] queries = {
+                {"SELECT *" + from + CourseEntry._ID + "=?", "1"},
+                {"SELECT *" + from + CourseEntry.COLUMN_COURSE_DAY + "=? ORDER BY " +
+                        CourseEntry.COLUMN_COURSE_TIME, "Monday"},
+                {"SELECT *" + from + CourseEntry.COLUMN_COURSE_TEACHER + "=?", "teacher"},
+                {"SELECT *" + from + CourseEntry.COLUMN_COURSE_ROOM + "=?", "room"},
+                {"SELECT *" + from + CourseProvider.SCHEDULE_SELECTION, "1", "840", "600"},
+                {"SELECT *" + from + CourseProvider.DAY_SELECTION + " ORDER BY " + CourseProvider.DAY_SORT_ORDER, "1"},
+                {"SELECT *" + from + CourseProvider.TEACHER_SELECTION + " ORDER BY " + CourseProvider.WEEK_SORT_ORDER, "teacher"},
+                {"SELECT *" + from + CourseProvider.ROOM_SELECTION + " ORDER BY " + CourseProvider.WEEK_SORT_ORDER, "room"},
+                {"SELECT *" + from + CourseProvider.buildKeysetSelection(CourseEntry.COLUMN_COURSE_NAME) +
+                        " ORDER BY " + CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry._ID, "a", "a", "1"}};
+        List<String> scans = new ArrayList<>();
+        for (String[] query : queries) {
+            String[] args = new String[query.length - 1];
+            System.arraycopy(query, 1, args, 0, args.length);
+            String plan = explainQueryPlan(db, query[0], args);
+            if (isTableScan(plan)) {
+                scans.add(query[0] + ": " + plan);
+            }
+        }
+        return scans;
+    }
+
+    /** Returns the detail column of EXPLAIN QUERY PLAN for the sql, one line per step */
+    static String explainQueryPlan(SQLiteDatabase db, String sql, String[] selectionArgs) {
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+        try {
+            int detailColumn = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) {
+                    plan.append('\n');
+                }
+                plan.append(cursor.getString(detailColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    /** true if the plan reads the course rows without an index or rowid lookup */
+    static boolean isTableScan(String plan) {
+        for (String step : plan.split("\n")) {
+            if (step.startsWith("SCAN") && step.contains(COURSE_ROWS_TABLE) && !step.contains("USING")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+/**
+ * Soft deletes: hiding courses under a new deletion generation, bringing a generation back while
+ * it's younger than the undo window, and purging expired generations on a background thread.
+ * The purger removes a bounded number of rows per transaction, so readers and writers get the
+ * database between batches however many courses were deleted.
+ */
+final class CourseDeletions {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = CourseDeletions.class.getSimpleName();
+
+    /** Rows purged per transaction */
+    private static final int PURGE_BATCH_ROWS = 200;
+
+    /** Deleted rows of expired generations, the argument is the expiry time */
+    private static final String EXPIRED_ROWS = CourseDbHelper.COLUMN_DELETED_GENERATION + " IN (SELECT " +
+            CourseEntry._ID + " FROM " + CourseDbHelper.DELETIONS_TABLE + " WHERE " +
+            CourseDbHelper.COLUMN_DELETED_AT + "<=?)";
+
+    private final CourseDbHelper mDbHelper;
+    private Handler mWorker;
+
+    CourseDeletions(CourseDbHelper dbHelper) {
+        mDbHelper = dbHelper;
+    }
+
+    /** Start a deletion generation in the current transaction, rows hidden under it can be restored until it expires */
+    static long newGeneration(SQLiteDatabase db) {
+        ContentValues values = new ContentValues(1);
+        values.put(CourseDbHelper.COLUMN_DELETED_AT, System.currentTimeMillis());
+        return db.insertOrThrow(CourseDbHelper.DELETIONS_TABLE, null, values);
+    }
+
+    /**
+     * Hide the live rows a selection of COURSE_ROWS_TABLE covers under generation, in the
+     * current transaction, returns how many. The rows leave the change log, keys and statistics
+     * in a few statements for all of them, rather than through the triggers row by row.
+     */
+    static int hide(SQLiteDatabase db, long generation, String selection, String[] selectionArgs) {
+        ContentValues values = new ContentValues(1);
+        values.put(CourseDbHelper.COLUMN_DELETED_GENERATION, generation);
+        int rows = db.update(CourseDbHelper.COURSE_ROWS_TABLE, values, selection, selectionArgs);
+        if (rows != 0) {
+            Object[] args = {generation};
+            for (String statement : CourseDbHelper.generationBookkeeping(false)) {
+                db.execSQL(statement, args);
+            }
+        }
+        return rows;
+    }
+
+    /** The latest generation that can still be undone, or -1 */
+    static long latestGeneration(SQLiteDatabase db) {
+        Cursor cursor = db.query(CourseDbHelper.DELETIONS_TABLE, new String[]{CourseEntry._ID},
+                CourseDbHelper.COLUMN_DELETED_AT + ">?", new String[]{String.valueOf(expiry())},
+                null, null, CourseEntry._ID + " DESC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** true if generation exists and hasn't expired, call in the transaction that restores it */
+    static boolean canRestore(SQLiteDatabase db, long generation) {
+        return DatabaseUtils.queryNumEntries(db, CourseDbHelper.DELETIONS_TABLE,
+                CourseEntry._ID + "=? AND " + CourseDbHelper.COLUMN_DELETED_AT + ">?",
+                new String[]{String.valueOf(generation), String.valueOf(expiry())}) != 0;
+    }
+
+    /**
+     * Bring back every row of generation in the current transaction, returns their ids. A row
+     * whose name, day and time another live course holds comes back without the key, like the
+     * duplicates kept by the version 10 migration.
+     */
+    static long[] restore(SQLiteDatabase db, long generation) {
+        String[] args = {String.valueOf(generation)};
+        String selection = CourseDbHelper.COLUMN_DELETED_GENERATION + "=?";
+        long[] ids;
+        Cursor cursor = db.query(CourseDbHelper.COURSE_ROWS_TABLE, new String[]{CourseEntry._ID},
+                selection, args, null, null, null);
+        try {
+            ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+        } finally {
+            cursor.close();
+        }
+        Object[] bindArgs = {generation};
+        for (String statement : CourseDbHelper.generationBookkeeping(true)) {
+            db.execSQL(statement, bindArgs);
+        }
+        ContentValues values = new ContentValues(1);
+        values.putNull(CourseDbHelper.COLUMN_DELETED_GENERATION);
+        db.update(CourseDbHelper.COURSE_ROWS_TABLE, values, selection, args);
+        db.delete(CourseDbHelper.DELETIONS_TABLE, CourseEntry._ID + "=?", args);
+        return ids;
+    }
+
+    /** Drop a generation nothing was hidden under, in the transaction that started it */
+    static void discard(SQLiteDatabase db, long generation) {
+        db.delete(CourseDbHelper.DELETIONS_TABLE, CourseEntry._ID + "=?", new String[]{String.valueOf(generation)});
+    }
+
+    /** soft deletes made at or before this time can no longer be undone */
+    private static long expiry() {
+        return System.currentTimeMillis() - CourseContract.DELETE_UNDO_WINDOW_MS;
+    }
+
+    /** Purge once the newest soft delete has expired, call after a soft delete commits or on start */
+    synchronized void schedulePurge() {
+        if (mWorker == null) {
+            HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            mWorker = new Handler(thread.getLooper());
+        }
+        mWorker.removeCallbacks(mPurge);
+        mWorker.postDelayed(mPurge, CourseContract.DELETE_UNDO_WINDOW_MS);
+    }
+
+    private final Runnable mPurge = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                int purged = purgeExpired();
+                if (purged > 0) {
+                    Log.v(LOG_TAG, "Purged " + purged + " deleted courses");
+                }
+            } catch (SQLiteException e) {
+                Log.w(LOG_TAG, "Failed to purge deleted courses", e);
+            }
+        }
+    };
+
+    /**
+     * remove the rows of expired generations a batch per transaction, then the generations, returns
+     * rows removed. They were logged as deleted when they were hidden, the change log leaves them be.
+     */
+    private int purgeExpired() {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        String[] args = {String.valueOf(expiry())};
+        String batch = CourseEntry._ID + " IN (SELECT " + CourseEntry._ID + " FROM " +
+                CourseDbHelper.COURSE_ROWS_TABLE + " WHERE " + EXPIRED_ROWS + " LIMIT " + PURGE_BATCH_ROWS + ")";
+        int purged = 0;
+        int rows;
+        do {
+            db.beginTransactionNonExclusive();
+            try {
+                rows = db.delete(CourseDbHelper.COURSE_ROWS_TABLE, batch, args);
+                if (rows < PURGE_BATCH_ROWS) {//that was the last of them
+                    db.delete(CourseDbHelper.DELETIONS_TABLE, CourseDbHelper.COLUMN_DELETED_AT + "<=?", args);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            purged += rows;
+        } while (rows == PURGE_BATCH_ROWS);
+        return purged;
+    }
+}
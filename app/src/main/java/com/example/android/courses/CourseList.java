@@ -0,0 +1,216 @@
+package com.example.android.courses;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An immutable copy of the catalog projection (_id, name, room) read out of a cursor.
+ * The catalog keeps these instead of live cursors so lists can be diffed on a background
+ * thread while the main thread binds from the same data.
+ */
+public final class CourseList {
+
+    public static final CourseList EMPTY = new CourseList(new long[0], new String[0], new String[0]);
+
+    private final long[] mIds;
+    private final String[] mNames;
+    private final String[] mRooms;
+
+    private CourseList(long[] ids, String[] names, String[] rooms) {
+        mIds = ids;
+        mNames = names;
+        mRooms = rooms;
+    }
+
+    /** Read every row of a cursor holding _id, name and room, looking each column up once */
+    public static CourseList fromCursor(Cursor cursor) {
+        int count = cursor.getCount();
+        long[] ids = new long[count];
+        String[] names = new String[count];
+        String[] rooms = new String[count];
+        int idColumn = cursor.getColumnIndexOrThrow(CourseEntry._ID);
+        int nameColumn = cursor.getColumnIndexOrThrow(CourseEntry.COLUMN_COURSE_NAME);
+        int roomColumn = cursor.getColumnIndexOrThrow(CourseEntry.COLUMN_COURSE_ROOM);
+        cursor.moveToPosition(-1);
+        for (int i = 0; cursor.moveToNext(); i++) {
+            ids[i] = cursor.getLong(idColumn);
+            names[i] = cursor.getString(nameColumn);
+            rooms[i] = cursor.getString(roomColumn);
+        }
+        return new CourseList(ids, names, rooms);
+    }
+
+    /** Write the list in the compact form {@link #readFrom} reads back */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(mIds.length);
+        for (int i = 0; i < mIds.length; i++) {
+            out.writeLong(mIds[i]);
+            out.writeUTF(mNames[i]);
+            out.writeUTF(mRooms[i]);
+        }
+    }
+
+    public static CourseList readFrom(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Bad course count " + count);
+        }
+        long[] ids = new long[count];
+        String[] names = new String[count];
+        String[] rooms = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = in.readLong();
+            names[i] = in.readUTF();
+            rooms[i] = in.readUTF();
+        }
+        return new CourseList(ids, names, rooms);
+    }
+
+    public int size() {
+        return mIds.length;
+    }
+
+    public long getId(int position) {
+        return mIds[position];
+    }
+
+    public String getName(int position) {
+        return mNames[position];
+    }
+
+    public String getRoom(int position) {
+        return mRooms[position];
+    }
+
+    /** position of the course with this id, or -1 */
+    public int indexOf(long id) {
+        for (int i = 0; i < mIds.length; i++) {
+            if (mIds[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** true if the course at position shows the same thing as the one at otherPosition in other */
+    public boolean sameContents(int position, CourseList other, int otherPosition) {
+        return TextUtils.equals(mNames[position], other.mNames[otherPosition])
+                && TextUtils.equals(mRooms[position], other.mRooms[otherPosition]);
+    }
+
+    /** this list followed by next */
+    public CourseList append(CourseList next) {
+        int size = size() + next.size();
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        String[] rooms = new String[size];
+        System.arraycopy(mIds, 0, ids, 0, size());
+        System.arraycopy(next.mIds, 0, ids, size(), next.size());
+        System.arraycopy(mNames, 0, names, 0, size());
+        System.arraycopy(next.mNames, 0, names, size(), next.size());
+        System.arraycopy(mRooms, 0, rooms, 0, size());
+        System.arraycopy(next.mRooms, 0, rooms, size(), next.size());
+        return new CourseList(ids, names, rooms);
+    }
+
+    /**
+     * this list, the first courses by name then id as the catalog pages them, with the courses
+     * in changed moved to where their new name sorts. Keyset paging reads the next page after
+     * the last course here, so a changed course sorting after it is left for that page to
+     * bring, unless complete says there are no more pages. One sorting before it joins the list
+     * even if it wasn't loaded yet, no later page will return it.
+     */
+    public CourseList update(CourseList changed, boolean complete) {
+        if (changed.size() == 0 || (mIds.length == 0 && !complete)) {
+            return this;
+        }
+        int last = mIds.length - 1;
+        Integer[] moved = new Integer[changed.size()];
+        int movedCount = 0;
+        for (int i = 0; i < changed.size(); i++) {
+            if (complete || compare(changed, i, this, last) <= 0) {
+                moved[movedCount++] = i;
+            }
+        }
+        final CourseList sortedChanges = changed;
+        Arrays.sort(moved, 0, movedCount, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return CourseList.compare(sortedChanges, a, sortedChanges, b);
+            }
+        });
+
+        // everything else keeps its order, merge the changed courses back in
+        CourseList rest = remove(changed.mIds);
+        int size = rest.size() + movedCount;
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        String[] rooms = new String[size];
+        for (int i = 0, r = 0, m = 0; i < size; i++) {
+            if (m < movedCount && (r == rest.size() || compare(changed, moved[m], rest, r) < 0)) {
+                ids[i] = changed.mIds[moved[m]];
+                names[i] = changed.mNames[moved[m]];
+                rooms[i] = changed.mRooms[moved[m]];
+                m++;
+            } else {
+                ids[i] = rest.mIds[r];
+                names[i] = rest.mNames[r];
+                rooms[i] = rest.mRooms[r];
+                r++;
+            }
+        }
+        return new CourseList(ids, names, rooms);
+    }
+
+    /**
+     * orders the course at position in a against the one at otherPosition in b by name then id,
+     * as the provider's pages are sorted. Names use SQLite's default BINARY collation, which
+     * String.compareTo matches for everything but characters outside the Basic Multilingual Plane.
+     */
+    private static int compare(CourseList a, int position, CourseList b, int otherPosition) {
+        int byName = a.mNames[position].compareTo(b.mNames[otherPosition]);
+        if (byName != 0) {
+            return byName;
+        }
+        long id = a.mIds[position];
+        long otherId = b.mIds[otherPosition];
+        return id < otherId ? -1 : (id == otherId ? 0 : 1);
+    }
+
+    /** this list without the courses with these ids */
+    public CourseList remove(long[] removedIds) {
+        boolean[] removed = new boolean[mIds.length];
+        int removedCount = 0;
+        for (long id : removedIds) {
+            int position = indexOf(id);
+            if (position >= 0 && !removed[position]) {
+                removed[position] = true;
+                removedCount++;
+            }
+        }
+        if (removedCount == 0) {
+            return this;
+        }
+        int size = mIds.length - removedCount;
+        long[] ids = new long[size];
+        String[] names = new String[size];
+        String[] rooms = new String[size];
+        for (int i = 0, j = 0; i < mIds.length; i++) {
+            if (!removed[i]) {
+                ids[j] = mIds[i];
+                names[j] = mNames[i];
+                rooms[j] = mRooms[i];
+                j++;
+            }
+        }
+        return new CourseList(ids, names, rooms);
+    }
+}
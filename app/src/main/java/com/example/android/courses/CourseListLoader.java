@@ -0,0 +1,69 @@
+package com.example.android.courses;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+/**
+ * Runs a catalog query on a background thread and hands back a {@link CourseList} copy of it,
+ * so nothing downstream ever touches the cursor from the main thread.
+ */
+public class CourseListLoader extends AsyncTaskLoader<CourseList> {
+
+    private final Uri mUri;
+    private final String[] mProjection;
+    private CourseList mCourses;
+
+    public CourseListLoader(Context context, Uri uri, String[] projection) {
+        super(context);
+        mUri = uri;
+        mProjection = projection;
+    }
+
+    public Uri getUri() {
+        return mUri;
+    }
+
+    @Override
+    public CourseList loadInBackground() {
+        Cursor cursor = getContext().getContentResolver().query(mUri, mProjection, null, null, null);
+        if (cursor == null) {
+            return CourseList.EMPTY;
+        }
+        try {
+            return CourseList.fromCursor(cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public void deliverResult(CourseList courses) {
+        mCourses = courses;
+        if (isStarted()) {
+            super.deliverResult(courses);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mCourses != null) {
+            deliverResult(mCourses);
+        }
+        if (takeContentChanged() || mCourses == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        mCourses = null;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.courses;
+
+import android.os.Bundle;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and row counts of the provider's operations, per operation and URI, plus how many
+ * change notifications went out. Recording is a map lookup and a few additions under a
+ * per-entry lock, cheap next to the SQLite work it measures.
+ */
+final class CourseMetrics {
+
+    static final String OP_QUERY = "query";
+    static final String OP_INSERT = "insert";
+    static final String OP_BULK_INSERT = "bulk_insert";
+    static final String OP_UPDATE = "update";
+    static final String OP_DELETE = "delete";
+    static final String OP_APPLY_BATCH = "apply_batch";
+    static final String OP_IMPORT = "import";
+    static final String OP_UNDO_DELETE = "undo_delete";
+    static final String OP_ARCHIVE_TERM = "archive_term";
+
+    /** latency histogram buckets, powers of two of microseconds as laid out at CourseContract.METHOD_METRICS */
+    static final int HISTOGRAM_BUCKETS = 24;
+
+    private final ConcurrentMap<String, Operation> mOperations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> mNotifications = new ConcurrentHashMap<>();
+
+    /**
+     * Record one call of operation on target (a URI pattern) that started at startNanos
+     * (System.nanoTime()) and touched or returned rows rows. Returns how long it took.
+     */
+    long record(String operation, String target, long startNanos, int rows) {
+        long nanos = System.nanoTime() - startNanos;
+        String key = operation + " " + target;
+        Operation stats = mOperations.get(key);
+        if (stats == null) {
+            Operation added = new Operation();
+            stats = mOperations.putIfAbsent(key, added);
+            if (stats == null) {
+                stats = added;
+            }
+        }
+        stats.add(nanos, rows);
+        return nanos;
+    }
+
+    /** count a change notification of this kind */
+    void recordNotification(String change) {
+        AtomicLong count = mNotifications.get(change);
+        if (count == null) {
+            AtomicLong added = new AtomicLong();
+            count = mNotifications.putIfAbsent(change, added);
+            if (count == null) {
+                count = added;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Everything recorded so far: a Bundle per "operation target" with the METRIC_ keys of
+     * CourseContract, and under METRICS_NOTIFICATIONS the number of notifications per kind of change.
+     */
+    Bundle getMetrics() {
+        Bundle metrics = new Bundle();
+        for (Map.Entry<String, Operation> entry : mOperations.entrySet()) {
+            metrics.putBundle(entry.getKey(), entry.getValue().toBundle());
+        }
+        Bundle notifications = new Bundle();
+        for (Map.Entry<String, AtomicLong> entry : mNotifications.entrySet()) {
+            notifications.putLong(entry.getKey(), entry.getValue().get());
+        }
+        metrics.putBundle(CourseContract.METRICS_NOTIFICATIONS, notifications);
+        return metrics;
+    }
+
+    void reset() {
+        mOperations.clear();
+        mNotifications.clear();
+    }
+
+    /** Counters for one operation on one URI */
+    private static final class Operation {
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mRows;
+        private final long[] mHistogram = new long[HISTOGRAM_BUCKETS];
+
+        synchronized void add(long nanos, int rows) {
+            mCount++;
+            mTotalNanos += nanos;
+            mMaxNanos = Math.max(mMaxNanos, nanos);
+            mRows += rows;
+            long micros = nanos / 1000;
+            int bucket = micros == 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            mHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)]++;
+        }
+
+        synchronized Bundle toBundle() {
+            Bundle bundle = new Bundle();
+            bundle.putLong(CourseContract.METRIC_COUNT, mCount);
+            bundle.putLong(CourseContract.METRIC_TOTAL_MICROS, mTotalNanos / 1000);
+            bundle.putLong(CourseContract.METRIC_MAX_MICROS, mMaxNanos / 1000);
+            bundle.putLong(CourseContract.METRIC_ROWS, mRows);
+            bundle.putLongArray(CourseContract.METRIC_HISTOGRAM, mHistogram.clone());
+            return bundle;
+        }
+    }
+}
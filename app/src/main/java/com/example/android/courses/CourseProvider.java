@@ -1,210 +1,1481 @@
-package com.example.android.courses;
-
-import android.content.ContentProvider;
-import android.content.ContentUris;
-import android.content.ContentValues;
-import android.content.UriMatcher;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.net.Uri;
-import android.util.Log;
-
-
-public class CourseProvider extends ContentProvider {
-
-    /** Tag for the log messages */
-    public static final String LOG_TAG = CourseProvider.class.getSimpleName();
-
-    private CourseDbHelper mDbHelper;//database helper object
-
-    /** URI matcher code for the content URI for the course table */
-    private static final int COURSES=100;
-    /** URI matcher code for the content URI for a single course in the courses table */
-    private static final int COURSES_ID=101;
-
-
-    /**
-     * UriMatcher object to match a content URI to a corresponding code.  */
-    private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
-    //static initializer
-    static{//add URI's
-        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY, CourseContract.PATH_COURSES,COURSES);//all rows of courses
-        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY, CourseContract.PATH_COURSES + "/#",COURSES_ID);//single row id of course
-    }
-
-    /**
-     * Initialize the provider and the database helper object.
-     */
-    @Override
-    public boolean onCreate() {
-        mDbHelper = new CourseDbHelper(getContext());
-        return true;
-    }
-
-    /**
-     * Perform the query for the given URI.
-     */
-    @Override
-    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
-        SQLiteDatabase database = mDbHelper.getReadableDatabase();
-        Cursor cursor;
-
-        int match=sUriMatcher.match(uri);
-
-        switch(match){
-            case COURSES:
-                cursor=database.query(CourseContract.CourseEntry.TABLE_NAME,projection,selection,selectionArgs,null,null,sortOrder);
-                break;
-            case COURSES_ID:
-                selection= CourseContract.CourseEntry._ID +"=?";//where
-                selectionArgs=new String[]{
-                        String.valueOf(ContentUris.parseId(uri))};//fill in ?
-                cursor=database.query(CourseContract.CourseEntry.TABLE_NAME,projection,selection,selectionArgs,null,null,sortOrder);//run query
-                break;
-            default:
-            throw new IllegalArgumentException("Cannot query unknown uri"+uri);
-        }
-
-        //uri data changes then can use this to know to update the cursor
-        cursor.setNotificationUri(getContext().getContentResolver(),uri);
-
-        return cursor;
-    }
-
-    /**
-     * Insert new data into the provider with the given ContentValues.
-     */
-    @Override
-    public Uri insert(Uri uri, ContentValues contentValues) {
-        final int match=sUriMatcher.match(uri);
-        switch(match){
-            case COURSES:
-                return insertCourse(uri,contentValues);
-            default:
-                throw new IllegalArgumentException("Cannot insert unknown uri"+uri);
-        }
-    }
-
-    private Uri insertCourse(Uri uri, ContentValues values){//insert helper method
-
-        /**Check error cases for user input*/
-        String name = values.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME);
-
-        if (name == null) {//null course name
-            throw new IllegalArgumentException("Course requires a name");
-        }
-
-        /**insert to database*/
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-        // Insert the new course with the given values
-        long id=db.insert(CourseContract.CourseEntry.TABLE_NAME, null, values);
-
-        if(id==-1){//insert failed
-            Log.e(LOG_TAG,"Failed to insert for"+uri);
-            return null;
-        }
-
-        //notify listeners that data has changed for course content uri
-        getContext().getContentResolver().notifyChange(uri,null);
-
-        return ContentUris.withAppendedId(uri,id); //new uri with id of newly inserted row
-    }
-
-    /**
-     * Updates the data at the given selection and selection arguments, with the new ContentValues.
-     */
-    @Override
-    public int update(Uri uri, ContentValues contentValues, String selection, String[] selectionArgs) {
-        final int match = sUriMatcher.match(uri);
-        switch (match) {
-            case COURSES:
-                return updateCourse(uri, contentValues, selection, selectionArgs);
-            case COURSES_ID:
-                selection = CourseContract.CourseEntry._ID + "=?";
-                selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri)) };
-                return updateCourse(uri, contentValues, selection, selectionArgs);
-            default:
-                throw new IllegalArgumentException("Cannot update unknown uri" + uri);
-        }
-    }
-
-    private int updateCourse(Uri uri, ContentValues values, String selection, String[] selectionArgs) {//update helper method
-
-        /**same error test cases as in insert*/
-        if (values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_NAME)) {
-            String name = values.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME);
-            if (name == null) {
-                throw new IllegalArgumentException("Course requires a name");
-            }
-        }
-
-        // If there are no values to update
-        if (values.size() == 0) {
-            return 0;
-        }
-
-        /**update to database*/
-
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
-
-        int rowsUpdated=db.update(CourseContract.CourseEntry.TABLE_NAME,values,selection,selectionArgs);
-
-        // If >1 rows updated, notify listeners that data has changed for course content uri
-        if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
-        }
-
-        // Return the number of rows updated
-        return rowsUpdated;
-    }
-
-    /**
-     * Delete the data at the given selection and selection arguments.
-     */
-    @Override
-    public int delete(Uri uri, String selection, String[] selectionArgs) {
-
-        SQLiteDatabase database = mDbHelper.getWritableDatabase();
-
-        int rowsDeleted;
-
-        final int match = sUriMatcher.match(uri);
-        switch (match) {
-            case COURSES:
-                // Delete all rows that match the selection and selection args
-                rowsDeleted = database.delete(CourseContract.CourseEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            case COURSES_ID:
-                // Delete a single row given by the ID in the URI
-                selection = CourseContract.CourseEntry._ID + "=?";
-                selectionArgs = new String[]{String.valueOf(ContentUris.parseId(uri))};
-                rowsDeleted = database.delete(CourseContract.CourseEntry.TABLE_NAME, selection, selectionArgs);
-                break;
-            default:
-                throw new IllegalArgumentException("Cannot delete unknown uri " + uri);
-        }
-        // If >1 rows updated, notify listeners that data has changed for course content uri
-        if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
-        }
-            // Return the number of rows deleted
-            return rowsDeleted;
-    }
-
-    /**
-     * Returns the MIME type of data for the content URI.
-     */
-    @Override
-    public String getType(Uri uri) {
-        final int match = sUriMatcher.match(uri);
-        switch (match) {
-            case COURSES:
-                return CourseContract.CourseEntry.CONTENT_LIST_TYPE;
-            case COURSES_ID:
-                return CourseContract.CourseEntry.CONTENT_ITEM_TYPE;
-            default:
-                throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
-        }
-    }
+package com.example.android.courses;
+
+import android.content.ClipDescription;
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.content.UriMatcher;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+
+public class CourseProvider extends ContentProvider {
+
+    /** Tag for the log messages */
+    public static final String LOG_TAG = CourseProvider.class.getSimpleName();
+
+    private CourseDbHelper mDbHelper;//database helper object
+    private CourseStatements mStatements;//compiled statements for the single row paths
+    private CourseCache mCache;//recently read courses by id
+    private CourseConflicts mConflicts;//room and teacher bookings per day
+    private CourseSnapshot mSnapshot;//first courses of the catalog for a cold start
+    private CourseDeletions mDeletions;//purges soft deleted courses once they can't be undone
+    private CourseTerms mTerms;//archived terms, a database file each
+    private final CourseMetrics mMetrics = new CourseMetrics();//latency and row counts
+
+    /** Queries slower than this are logged with their query plan */
+    private static final long SLOW_QUERY_NANOS = 50 * 1000 * 1000L;
+
+    /** Memory the course cache may use, a few thousand typical courses */
+    private static final int CACHE_MAX_BYTES = 256 * 1024;
+
+    /** Changes to notify once the applyBatch() running on this thread commits, null outside of a batch */
+    private final ThreadLocal<PendingChanges> mPendingChanges = new ThreadLocal<>();
+
+    /** URI matcher code for the content URI for the course table */
+    private static final int COURSES=100;
+    /** URI matcher code for the content URI for a single course in the courses table */
+    private static final int COURSES_ID=101;
+    /** URI matcher code for the content URI for courses in a time range on one day */
+    private static final int COURSES_SCHEDULE=102;
+    /** URI matcher code for the content URI for a full text search of the courses */
+    private static final int COURSES_SEARCH=103;
+    /** URI matcher code for the content URI listing room and teacher double bookings */
+    private static final int COURSES_CONFLICTS=104;
+    /** URI matcher code for the content URI for free time of a room or teacher */
+    private static final int COURSES_FREE=105;
+    /** URI matcher codes for the content URIs for all courses as a CSV or JSON file */
+    private static final int COURSES_CSV=106;
+    private static final int COURSES_JSON=107;
+    /** URI matcher code for the content URI for courses changed after a sequence number */
+    private static final int COURSES_CHANGES=108;
+    /** URI matcher codes for the content URIs for the courses on a day, of a teacher or in a room */
+    private static final int COURSES_DAY=109;
+    private static final int COURSES_TEACHER=110;
+    private static final int COURSES_ROOM=111;
+    /** URI matcher code for the content URI that inserts or updates by name, day and time */
+    private static final int COURSES_UPSERT=112;
+    /** URI matcher code for the content URI for course counts and hours per day, teacher or room */
+    private static final int COURSES_STATS=113;
+
+    /** Courses an import inserts per transaction */
+    private static final int IMPORT_CHUNK_ROWS = 500;
+
+
+    /**
+     * UriMatcher object to match a content URI to a corresponding code.  */
+    private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+    //static initializer
+    static{//add URI's
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY, CourseContract.PATH_COURSES,COURSES);//all rows of courses
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY, CourseContract.PATH_COURSES + "/#",COURSES_ID);//single row id of course
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_SCHEDULE + "/#", COURSES_SCHEDULE);//courses on a day
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_SEARCH + "/*", COURSES_SEARCH);//search text
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CONFLICTS, COURSES_CONFLICTS);//double bookings
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_FREE, COURSES_FREE);//free time
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CSV, COURSES_CSV);//import/export
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_JSON, COURSES_JSON);
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CHANGES + "/#", COURSES_CHANGES);//change feed
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_DAY + "/*", COURSES_DAY);//one day's courses
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_TEACHER + "/*", COURSES_TEACHER);
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_ROOM + "/*", COURSES_ROOM);
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_UPSERT, COURSES_UPSERT);//insert or update
+        sUriMatcher.addURI(CourseContract.CONTENT_AUTHORITY,
+                CourseContract.PATH_COURSES + "/" + CourseContract.PATH_STATS + "/*", COURSES_STATS);//statistics
+    }
+
+    /** the URI pattern a matcher code stands for, to label its metrics */
+    private static String uriName(int match) {
+        switch (match) {
+            case COURSES:
+                return CourseContract.PATH_COURSES;
+            case COURSES_ID:
+                return CourseContract.PATH_COURSES + "/#";
+            case COURSES_SCHEDULE:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_SCHEDULE + "/#";
+            case COURSES_SEARCH:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_SEARCH + "/*";
+            case COURSES_CONFLICTS:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CONFLICTS;
+            case COURSES_FREE:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_FREE;
+            case COURSES_CSV:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CSV;
+            case COURSES_JSON:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_JSON;
+            case COURSES_CHANGES:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_CHANGES + "/#";
+            case COURSES_DAY:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_DAY + "/*";
+            case COURSES_TEACHER:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_TEACHER + "/*";
+            case COURSES_ROOM:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_ROOM + "/*";
+            case COURSES_UPSERT:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_UPSERT;
+            case COURSES_STATS:
+                return CourseContract.PATH_COURSES + "/" + CourseContract.PATH_STATS + "/*";
+            default:
+                return String.valueOf(match);
+        }
+    }
+
+    /** Selection for a single course, one constant string so SQLite's per-connection statement cache keeps it compiled */
+    private static final String ID_SELECTION = CourseContract.CourseEntry._ID + "=?";
+
+    /**
+     * Courses on one day that overlap a time range, answered from the day/start index.
+     * Arguments are day of week, end of the range and start of the range.
+     */
+    static final String SCHEDULE_SELECTION =
+            CourseContract.CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "=? AND " +
+            CourseContract.CourseEntry.COLUMN_COURSE_START_MINUTE + "<? AND " +
+            CourseContract.CourseEntry.COLUMN_COURSE_END_MINUTE + ">?";
+
+    /** The live course with a name, day and time, at most one. Arguments are in that order */
+    private static final String KEY_SELECTION = CourseContract.CourseEntry.COLUMN_COURSE_NAME + "=? AND " +
+            CourseContract.CourseEntry.COLUMN_COURSE_DAY + "=? AND " + CourseContract.CourseEntry.COLUMN_COURSE_TIME + "=?";
+
+    /** What an upsert compares with the existing course, name, day and time match by definition */
+    private static final String[] UPSERT_PROJECTION = {
+            CourseContract.CourseEntry._ID,
+            CourseContract.CourseEntry.COLUMN_COURSE_ROOM,
+            CourseContract.CourseEntry.COLUMN_COURSE_TEACHER};
+
+    /**
+     * Fixed selections and orders of the day, teacher and room routes, each served by one index
+     * without a sort step. The argument is the day of week, teacher or room from the path.
+     */
+    static final String DAY_SELECTION = CourseContract.CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "=?";
+    static final String DAY_SORT_ORDER = CourseContract.CourseEntry.COLUMN_COURSE_START_MINUTE;
+    static final String TEACHER_SELECTION = CourseContract.CourseEntry.COLUMN_COURSE_TEACHER + "=?";
+    static final String ROOM_SELECTION = CourseContract.CourseEntry.COLUMN_COURSE_ROOM + "=?";
+    static final String WEEK_SORT_ORDER = CourseContract.CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," +
+            CourseContract.CourseEntry.COLUMN_COURSE_START_MINUTE;
+
+    /**
+     * The change log after a sequence number with the current state of each course, deleted ones
+     * keep just their id. Argument is the sequence number, answered from the log's primary key.
+     */
+    private static final String CHANGES_TABLES = "(SELECT " +
+            CourseDbHelper.COLUMN_COURSE_ID + " AS " + CourseContract.CourseEntry._ID + "," +
+            CourseDbHelper.COLUMN_SEQUENCE + " AS " + CourseContract.CourseEntry.COLUMN_CHANGE_SEQUENCE + "," +
+            CourseContract.CourseEntry.COLUMN_CHANGE_DELETED + " FROM " + CourseDbHelper.CHANGES_TABLE +
+            " WHERE " + CourseDbHelper.COLUMN_SEQUENCE + ">?) AS changes LEFT JOIN " +
+            CourseContract.CourseEntry.TABLE_NAME + " USING (" + CourseContract.CourseEntry._ID + ")";
+
+    /**
+     * The statistics rows of one kind of group with the group's name, straight from the summary
+     * table's primary key. Teachers and rooms are looked up by id per group, never per course.
+     */
+    private static String statsTables(int kind) {
+        String group;
+        String join = "";
+        if (kind == CourseDbHelper.STATS_DAY) {
+            group = CourseDbHelper.COLUMN_STATS_GROUP_ID;
+        } else {
+            String names = kind == CourseDbHelper.STATS_TEACHER ? CourseDbHelper.TEACHERS_TABLE : CourseDbHelper.ROOMS_TABLE;
+            group = names + "." + CourseDbHelper.COLUMN_NAME;
+            join = " JOIN " + names + " ON " + names + "." + CourseContract.CourseEntry._ID + "=" +
+                    CourseDbHelper.COLUMN_STATS_GROUP_ID;
+        }
+        return "(SELECT " + CourseDbHelper.COLUMN_STATS_GROUP_ID + " AS " + CourseContract.CourseEntry._ID + "," +
+                group + " AS " + CourseContract.CourseEntry.COLUMN_STATS_GROUP + "," +
+                CourseContract.CourseEntry.COLUMN_STATS_COURSES + "," +
+                CourseContract.CourseEntry.COLUMN_STATS_MINUTES + " FROM " + CourseDbHelper.STATS_TABLE + join +
+                " WHERE " + CourseDbHelper.COLUMN_STATS_KIND + "=" + kind + ") AS stats";
+    }
+
+    /**
+     * courses joined with their full text matches. offsets() gives 4 numbers per matched term,
+     * so counting its spaces ranks courses by how many terms they hit. Argument is the MATCH expression.
+     */
+    private static final String SEARCH_TABLES =
+            CourseContract.CourseEntry.TABLE_NAME + " JOIN (SELECT docid, (length(offsets(" +
+            CourseDbHelper.FTS_TABLE_NAME + ")) - length(replace(offsets(" + CourseDbHelper.FTS_TABLE_NAME +
+            "), ' ', '')) + 1) / 4 AS hits FROM " + CourseDbHelper.FTS_TABLE_NAME + " WHERE " +
+            CourseDbHelper.FTS_TABLE_NAME + " MATCH ?) AS matches ON " +
+            CourseContract.CourseEntry.TABLE_NAME + "." + CourseContract.CourseEntry._ID + "=matches.docid";
+
+    private static final String SEARCH_SORT_ORDER =
+            "matches.hits DESC, " + CourseContract.CourseEntry.COLUMN_COURSE_NAME;
+
+    /**
+     * Initialize the provider and the database helper object.
+     */
+    @Override
+    public boolean onCreate() {
+        mDbHelper = new CourseDbHelper(getContext());
+        mStatements = new CourseStatements(mDbHelper);
+        mCache = new CourseCache(CACHE_MAX_BYTES);
+        mConflicts = new CourseConflicts();
+        mSnapshot = new CourseSnapshot(getContext(), mDbHelper);
+        mSnapshot.scheduleWriteIfMissing();
+        mDeletions = new CourseDeletions(mDbHelper);
+        mDeletions.schedulePurge();//anything left from soft deletes before the process last died
+        mTerms = new CourseTerms(getContext(), mDbHelper);
+        return true;
+    }
+
+    /**
+     * Perform the query for the given URI.
+     */
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        long start = System.nanoTime();
+        Cursor cursor;
+        String tables = null;//what the query read from, if a slow query can be explained
+
+        int match=sUriMatcher.match(uri);
+        String term = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_TERM);
+        boolean archived = term != null && !CourseContract.TERM_CURRENT.equals(term);
+        boolean severalTerms = archived && term.indexOf(',') >= 0;
+        if (severalTerms && match != COURSES) {
+            throw new IllegalArgumentException("Only the courses uri reads several terms at once " + uri);
+        }
+        SQLiteDatabase database = severalTerms ? null : readableDatabase(uri);
+
+        switch(match){
+            case COURSES:
+                if (severalTerms) {//each term's file attached side by side
+                    cursor = mTerms.queryCourses(TextUtils.split(term, ","), projection, selection, selectionArgs, sortOrder);
+                    break;
+                }
+                if (uri.getQueryParameter(CourseContract.CourseEntry.PARAM_LIMIT) != null) {//one page
+                    cursor = queryPage(database, uri, projection, selection, selectionArgs, sortOrder);
+                    break;
+                }
+                tables = CourseContract.CourseEntry.TABLE_NAME;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);
+                break;
+            case COURSES_ID:
+                if (!archived && CourseCache.canServe(projection)) {//the cache only holds current courses
+                    cursor = queryCachedCourse(database, ContentUris.parseId(uri), projection);
+                    break;
+                }
+                selection= ID_SELECTION;//where
+                selectionArgs=new String[]{
+                        String.valueOf(ContentUris.parseId(uri))};//fill in ?
+                tables = CourseContract.CourseEntry.TABLE_NAME;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);//run query
+                break;
+            case COURSES_SCHEDULE:
+                // day of week from the path, time range from the query parameters (whole day if missing)
+                String[] scheduleArgs = {
+                        uri.getLastPathSegment(),
+                        String.valueOf(parseIntParameter(uri, CourseContract.CourseEntry.PARAM_TO_MINUTE, 24 * 60)),
+                        String.valueOf(parseIntParameter(uri, CourseContract.CourseEntry.PARAM_FROM_MINUTE, 0))};
+                selection = DatabaseUtils.concatenateWhere(SCHEDULE_SELECTION, selection);
+                selectionArgs = DatabaseUtils.appendSelectionArgs(scheduleArgs, selectionArgs);
+                if (sortOrder == null) {
+                    sortOrder = CourseContract.CourseEntry.COLUMN_COURSE_START_MINUTE;
+                }
+                tables = CourseContract.CourseEntry.TABLE_NAME;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);
+                break;
+            case COURSES_SEARCH:
+                String matchExpression = buildMatchExpression(uri.getLastPathSegment());
+                if (matchExpression.isEmpty()) {//nothing searchable, nothing matches
+                    selection = DatabaseUtils.concatenateWhere("0", selection);
+                    cursor=database.query(CourseContract.CourseEntry.TABLE_NAME,projection,selection,selectionArgs,null,null,sortOrder);
+                    break;
+                }
+                // the MATCH argument comes first, it sits in the FROM clause before any selection
+                selectionArgs = DatabaseUtils.appendSelectionArgs(new String[]{matchExpression}, selectionArgs);
+                if (sortOrder == null) {
+                    sortOrder = SEARCH_SORT_ORDER;
+                }
+                tables = SEARCH_TABLES;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);
+                break;
+            case COURSES_CONFLICTS:
+            case COURSES_FREE:
+                if (archived) {
+                    throw new IllegalArgumentException("Only the current term has bookings " + uri);
+                }
+                cursor = queryBookings(match, uri, projection);
+                break;
+            case COURSES_DAY:
+            case COURSES_TEACHER:
+            case COURSES_ROOM:
+                String[] routeArgs = {routeArgument(match, uri)};
+                selection = DatabaseUtils.concatenateWhere(
+                        match == COURSES_DAY ? DAY_SELECTION : match == COURSES_TEACHER ? TEACHER_SELECTION : ROOM_SELECTION,
+                        selection);
+                selectionArgs = DatabaseUtils.appendSelectionArgs(routeArgs, selectionArgs);
+                if (sortOrder == null) {
+                    sortOrder = match == COURSES_DAY ? DAY_SORT_ORDER : WEEK_SORT_ORDER;
+                }
+                tables = CourseContract.CourseEntry.TABLE_NAME;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);
+                break;
+            case COURSES_STATS:
+                tables = statsTables(statsKind(uri));
+                if (sortOrder == null) {
+                    sortOrder = CourseContract.CourseEntry.COLUMN_STATS_GROUP;
+                }
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder);
+                break;
+            case COURSES_CHANGES:
+                // the sequence number comes first, it sits in the FROM clause before any selection
+                selectionArgs = DatabaseUtils.appendSelectionArgs(new String[]{uri.getLastPathSegment()}, selectionArgs);
+                if (sortOrder == null) {
+                    sortOrder = CourseContract.CourseEntry.COLUMN_CHANGE_SEQUENCE;
+                }
+                int limit = parseIntParameter(uri, CourseContract.CourseEntry.PARAM_LIMIT, 0);
+                tables = CHANGES_TABLES;
+                cursor=database.query(tables,projection,selection,selectionArgs,null,null,sortOrder,
+                        limit > 0 ? String.valueOf(limit) : null);
+                break;
+            default:
+            throw new IllegalArgumentException("Cannot query unknown uri"+uri);
+        }
+
+        //uri data changes then can use this to know to update the cursor
+        if (!"false".equals(uri.getQueryParameter(CourseContract.CourseEntry.PARAM_OBSERVE))) {
+            // schedule and search results can change with any course, so they watch the whole collection
+            Uri notificationUri = match == COURSES_ID ? uri : CourseContract.CourseEntry.CONTENT_URI;
+            cursor.setNotificationUri(getContext().getContentResolver(), notificationUri);
+        }
+
+        int rows = cursor.getCount();//runs the query, so its time is part of what gets recorded
+        long nanos = mMetrics.record(CourseMetrics.OP_QUERY, uriName(match), start, rows);
+        if (nanos >= SLOW_QUERY_NANOS) {
+            logSlowQuery(database, uri, nanos, tables, projection, selection, selectionArgs, sortOrder);
+        }
+        return cursor;
+    }
+
+    /** the database a read of uri goes to, the current one or an archived term's for PARAM_TERM */
+    private SQLiteDatabase readableDatabase(Uri uri) {
+        String term = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_TERM);
+        if (term == null || CourseContract.TERM_CURRENT.equals(term)) {
+            return mDbHelper.getReadableDatabase();
+        }
+        return mTerms.open(term);
+    }
+
+    /** writes only go to the current courses, archived terms are read only */
+    private static void checkCurrentTerm(Uri uri) {
+        String term = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_TERM);
+        if (term != null && !CourseContract.TERM_CURRENT.equals(term)) {
+            throw new IllegalArgumentException("Archived terms are read only " + uri);
+        }
+    }
+
+    /** the kind of statistics group a stats uri asks for */
+    private static int statsKind(Uri uri) {
+        String groupBy = uri.getLastPathSegment();
+        if (CourseContract.PATH_DAY.equals(groupBy)) {
+            return CourseDbHelper.STATS_DAY;
+        } else if (CourseContract.PATH_TEACHER.equals(groupBy)) {
+            return CourseDbHelper.STATS_TEACHER;
+        } else if (CourseContract.PATH_ROOM.equals(groupBy)) {
+            return CourseDbHelper.STATS_ROOM;
+        }
+        throw new IllegalArgumentException("Cannot group statistics by " + groupBy);
+    }
+
+    /** log a slow query with its selection and, when it's a plain query of tables, what SQLite made of it */
+    private static void logSlowQuery(SQLiteDatabase db, Uri uri, long nanos, String tables, String[] projection,
+                                     String selection, String[] selectionArgs, String sortOrder) {
+        String message = "Slow query " + uri + " took " + nanos / 1000000 + "ms, selection " + selection +
+                " " + Arrays.toString(selectionArgs) + ", sort " + sortOrder;
+        if (tables != null) {
+            String sql = SQLiteQueryBuilder.buildQueryString(false, tables, projection, selection,
+                    null, null, sortOrder, null);
+            message += "\n" + CourseDbHelper.explainQueryPlan(db, sql, selectionArgs);
+        }
+        Log.w(LOG_TAG, message);
+    }
+
+    /** a single course from the cache, read through from the database on a miss */
+    private Cursor queryCachedCourse(SQLiteDatabase db, long id, String[] projection) {
+        Cursor cached = mCache.get(id, projection);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = mCache.generation();
+        Cursor row = db.query(CourseContract.CourseEntry.TABLE_NAME, CourseCache.COLUMNS, ID_SELECTION,
+                new String[]{String.valueOf(id)}, null, null, null);
+        try {
+            if (row.moveToFirst()) {
+                return mCache.put(generation, row, projection);
+            }
+            return new MatrixCursor(projection == null ? CourseCache.COLUMNS : projection, 0);//no such course
+        } finally {
+            row.close();
+        }
+    }
+
+    /**
+     * double bookings or free time, answered from the conflict index. A read like any other,
+     * imports and deletes don't hold it up; the index itself keeps it to committed rows.
+     */
+    private Cursor queryBookings(int match, Uri uri, String[] projection) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        if (match == COURSES_CONFLICTS) {
+            return mConflicts.queryConflicts(db, projection);
+        }
+        return queryFreeSlots(db, uri, projection);
+    }
+
+    /** free stretches for the room, teacher, length and hours in a free slots uri */
+    private Cursor queryFreeSlots(SQLiteDatabase db, Uri uri, String[] projection) {
+        int minutes = parseIntParameter(uri, CourseContract.CourseEntry.PARAM_MINUTES, 0);
+        int day = parseIntParameter(uri, CourseContract.CourseEntry.PARAM_DAY, 0);
+        int from = parseIntParameter(uri, CourseContract.CourseEntry.PARAM_FROM_MINUTE, 0);
+        int to = parseIntParameter(uri, CourseContract.CourseEntry.PARAM_TO_MINUTE, 24 * 60);
+        if (minutes < 1 || day < 0 || day > 7 || from < 0 || to > 24 * 60 || from >= to) {
+            throw new IllegalArgumentException("Invalid free slot query " + uri);
+        }
+        return mConflicts.queryFreeSlots(db, uri.getQueryParameter(CourseContract.CourseEntry.PARAM_ROOM),
+                uri.getQueryParameter(CourseContract.CourseEntry.PARAM_TEACHER), minutes, day, from, to, projection);
+    }
+
+    /**
+     * One page of courses in (sort key, _id) order. A later page starts right after the previous
+     * page's last row, so SQLite seeks straight to it in the index instead of stepping over an OFFSET.
+     */
+    private static Cursor queryPage(SQLiteDatabase db, Uri uri, String[] projection,
+                                    String selection, String[] selectionArgs, String sortOrder) {
+        if (sortOrder != null) {
+            throw new IllegalArgumentException("Pages are sorted by the sort parameter, not a sort order " + uri);
+        }
+        String sortKey = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_SORT);
+        if (sortKey == null) {
+            sortKey = CourseContract.CourseEntry._ID;
+        } else if (!isPageSortKey(sortKey)) {
+            throw new IllegalArgumentException("Cannot page courses by " + sortKey);
+        }
+        String limit = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_LIMIT);
+        String afterId = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_AFTER_ID);
+        try {
+            if (Integer.parseInt(limit) < 1 || (afterId != null && Long.parseLong(afterId) < 0)) {
+                throw new IllegalArgumentException("Invalid page in uri " + uri);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page in uri " + uri);
+        }
+
+        if (afterId != null) {// not the first page
+            String[] keysetArgs;
+            if (sortKey.equals(CourseContract.CourseEntry._ID)) {
+                keysetArgs = new String[]{afterId};
+            } else {
+                String after = uri.getQueryParameter(CourseContract.CourseEntry.PARAM_AFTER);
+                if (after == null) {
+                    throw new IllegalArgumentException("Page needs the last sort key as well as its id " + uri);
+                }
+                keysetArgs = new String[]{after, after, afterId};
+            }
+            selection = DatabaseUtils.concatenateWhere(buildKeysetSelection(sortKey), selection);
+            selectionArgs = DatabaseUtils.appendSelectionArgs(keysetArgs, selectionArgs);
+        }
+        sortOrder = sortKey.equals(CourseContract.CourseEntry._ID) ? sortKey : sortKey + "," + CourseContract.CourseEntry._ID;
+        return db.query(CourseContract.CourseEntry.TABLE_NAME, projection, selection, selectionArgs,
+                null, null, sortOrder, limit);
+    }
+
+    /**
+     * Rows after (key, id) in (sortKey, _id) order. Written as a range on sortKey plus a tie-break
+     * rather than an OR of the two, so the sortKey index can seek to the start of the page.
+     * Arguments are the key, the key again and the id.
+     */
+    static String buildKeysetSelection(String sortKey) {
+        if (sortKey.equals(CourseContract.CourseEntry._ID)) {
+            return CourseContract.CourseEntry._ID + ">?";
+        }
+        return sortKey + ">=? AND (" + sortKey + ">? OR " + CourseContract.CourseEntry._ID + ">?)";
+    }
+
+    /** columns pages can be sorted by, each NOT NULL and indexed */
+    private static boolean isPageSortKey(String column) {
+        return column.equals(CourseContract.CourseEntry._ID)
+                || column.equals(CourseContract.CourseEntry.COLUMN_COURSE_NAME)
+                || column.equals(CourseContract.CourseEntry.COLUMN_COURSE_ROOM)
+                || column.equals(CourseContract.CourseEntry.COLUMN_COURSE_TEACHER);
+    }
+
+    /**
+     * Turn search text into an FTS MATCH expression: every word becomes a prefix term and all of
+     * them must match. Anything that isn't a letter or digit is dropped so user text can't
+     * inject FTS operators or quotes.
+     */
+    private static String buildMatchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : text.toLowerCase(Locale.US).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.toString();
+    }
+
+    /** the day of week, teacher or room a day, teacher or room uri is for */
+    private static String routeArgument(int match, Uri uri) {
+        String value = uri.getLastPathSegment();
+        if (match != COURSES_DAY) {
+            return value;
+        }
+        Integer dayOfWeek = CourseTimes.parseDayOfWeek(value);
+        if (dayOfWeek == null) {
+            throw new IllegalArgumentException("Invalid day in uri " + uri);
+        }
+        return String.valueOf(dayOfWeek);
+    }
+
+    /** a number from a URI query parameter, e.g. minutes since midnight, or the default when it's absent */
+    private static int parseIntParameter(Uri uri, String name, int defaultValue) {
+        String value = uri.getQueryParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " in uri " + uri);
+        }
+    }
+
+    /**
+     * Insert new data into the provider with the given ContentValues.
+     */
+    @Override
+    public Uri insert(Uri uri, ContentValues contentValues) {
+        long start = System.nanoTime();
+        checkCurrentTerm(uri);
+        final int match=sUriMatcher.match(uri);
+        Uri newUri;
+        switch(match){
+            case COURSES:
+                newUri = insertCourse(uri,contentValues);
+                break;
+            case COURSES_UPSERT:
+                newUri = upsertCourse(uri, contentValues);
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot insert unknown uri"+uri);
+        }
+        mMetrics.record(CourseMetrics.OP_INSERT, uriName(match), start, newUri == null ? 0 : 1);
+        return newUri;
+    }
+
+    private Uri insertCourse(Uri uri, ContentValues values){//insert helper method
+
+        /**Check error cases for user input*/
+        String name = values.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME);
+
+        if (name == null) {//null course name
+            throw new IllegalArgumentException("Course requires a name");
+        }
+
+        /**insert to database*/
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+
+        // Insert the new course with the given values, the editor's column set goes through a compiled statement
+        long id = -1;
+        db.beginTransactionNonExclusive();
+        try {
+            if (CourseStatements.hasCourseColumns(values)) {
+                id = mStatements.insert(values);
+            } else {
+                // copy so the caller's values don't pick up the normalized day/time columns
+                values = new ContentValues(values);
+                CourseTimes.putNormalizedColumns(values);
+                mStatements.internNames(values);
+                id = db.insert(CourseDbHelper.COURSE_ROWS_TABLE, null, values);
+            }
+            if (id != -1) {
+                updateConflicts(db, uri, new long[]{id});
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            mConflicts.invalidate(new long[]{id});//rolled back, the index may have read the new row
+            throw duplicateCourse(e);
+        } finally {
+            db.endTransaction();
+        }
+
+        if(id==-1){//insert failed
+            Log.e(LOG_TAG,"Failed to insert for"+uri);
+            return null;
+        }
+
+        //notify listeners that a course was added
+        notifyChange(CourseContract.CourseEntry.CHANGE_INSERT, new long[]{id});
+
+        return ContentUris.withAppendedId(uri,id); //new uri with id of newly inserted row
+    }
+
+    /**
+     * Insert a whole batch of courses (e.g. importing a term's schedule) in a single transaction.
+     * Every row is validated before anything is written, rows go through one compiled INSERT
+     * statement, and listeners get a single change notification at the end instead of one per row.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        long start = System.nanoTime();
+        checkCurrentTerm(uri);
+        final int match = sUriMatcher.match(uri);
+        if (match == COURSES_UPSERT) {
+            PendingChanges changes = new PendingChanges();
+            upsertCourses(uri, values, changes);
+            notifyChanges(changes);
+            mMetrics.record(CourseMetrics.OP_BULK_INSERT, uriName(match), start, changes.mRows);
+            return changes.mRows;
+        }
+        if (match != COURSES) {
+            throw new IllegalArgumentException("Cannot insert unknown uri" + uri);
+        }
+
+        long[] insertedIds = insertCourses(uri, values);
+
+        //one notification for the whole batch, just "reload" if it's too big to list
+        if (insertedIds.length != 0) {
+            notifyChange(CourseContract.CourseEntry.CHANGE_INSERT, insertedIds);
+        }
+
+        mMetrics.record(CourseMetrics.OP_BULK_INSERT, uriName(match), start, insertedIds.length);
+        return insertedIds.length;
+    }
+
+    /** validate and insert courses in one transaction, returns their ids. Listeners aren't notified */
+    private long[] insertCourses(Uri uri, ContentValues[] values) {
+        /**validate every row up front so a bad row can't leave a half imported schedule*/
+        for (ContentValues row : values) {
+            validateNewCourse(row);
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement insert = mStatements.acquireInsert();
+        int rowsInserted = 0;
+        long[] insertedIds = new long[values.length];
+
+        db.beginTransactionNonExclusive();//readers keep going under WAL
+        try {
+            for (ContentValues row : values) {
+                insertedIds[rowsInserted++] = mStatements.executeInsert(insert, row);
+            }
+            updateConflicts(db, uri, insertedIds);//against each other as well as the existing courses
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            mConflicts.invalidate(insertedIds);
+            throw duplicateCourse(e);
+        } finally {
+            db.endTransaction();
+            mStatements.release(insert);
+        }
+        return insertedIds;
+    }
+
+    /** upsert helper for a single course, returns its uri whether it was inserted, updated or already up to date */
+    private Uri upsertCourse(Uri uri, ContentValues values) {
+        PendingChanges changes = new PendingChanges();
+        long id = upsertCourses(uri, new ContentValues[]{values}, changes)[0];
+        notifyChanges(changes);
+        return ContentUris.withAppendedId(CourseContract.CourseEntry.CONTENT_URI, id);
+    }
+
+    /**
+     * Insert complete courses in one transaction, each updating the live course with the same
+     * name, day and time if there is one. A course that already holds the values is left
+     * untouched. Returns the course id of every row, and adds the ids inserted and updated to
+     * changes for the caller to notify once this has committed.
+     */
+    private long[] upsertCourses(Uri uri, ContentValues[] values, PendingChanges changes) {
+        for (ContentValues row : values) {
+            validateNewCourse(row);
+        }
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement insert = mStatements.acquireInsert();
+        long[] ids = new long[values.length];
+        long[] inserted = new long[values.length];
+        long[] updated = new long[values.length];
+        int insertedCount = 0;
+        int updatedCount = 0;
+
+        db.beginTransactionNonExclusive();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                ContentValues row = values[i];
+                String[] key = {
+                        row.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME),
+                        row.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_DAY),
+                        row.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_TIME)};
+                long existingId = -1;
+                boolean unchanged = false;
+                Cursor existing = db.query(CourseContract.CourseEntry.TABLE_NAME, UPSERT_PROJECTION,
+                        KEY_SELECTION, key, null, null, null);
+                try {
+                    if (existing.moveToFirst()) {
+                        existingId = existing.getLong(0);
+                        unchanged = TextUtils.equals(existing.getString(1),
+                                row.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_ROOM))
+                                && TextUtils.equals(existing.getString(2),
+                                row.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_TEACHER));
+                    }
+                } finally {
+                    existing.close();
+                }
+
+                if (existingId == -1) {
+                    ids[i] = mStatements.executeInsert(insert, row);
+                    inserted[insertedCount++] = ids[i];
+                } else {
+                    ids[i] = existingId;
+                    if (!unchanged) {
+                        mStatements.updateById(existingId, row);
+                        updated[updatedCount++] = existingId;
+                    }
+                }
+            }
+            long[] written = new long[insertedCount + updatedCount];
+            System.arraycopy(inserted, 0, written, 0, insertedCount);
+            System.arraycopy(updated, 0, written, insertedCount, updatedCount);
+            if (written.length != 0) {
+                updateConflicts(db, uri, written);
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            mConflicts.invalidate(null);//rolled back, the index may have read any of the rows
+            throw e;
+        } finally {
+            db.endTransaction();
+            mStatements.release(insert);
+        }
+
+        if (insertedCount != 0) {
+            changes.add(CourseContract.CourseEntry.CHANGE_INSERT, Arrays.copyOf(inserted, insertedCount));
+        }
+        if (updatedCount != 0) {
+            changes.add(CourseContract.CourseEntry.CHANGE_UPDATE, Arrays.copyOf(updated, updatedCount));
+        }
+        return ids;
+    }
+
+    /** a write that broke the unique name, day and time of live courses, as the error for a duplicate course */
+    private static RuntimeException duplicateCourse(RuntimeException e) {
+        if (e instanceof SQLiteConstraintException) {
+            return new IllegalArgumentException("There is already a course with this name, day and time", e);
+        }
+        return e;
+    }
+
+    /**
+     * Open the CSV or JSON uri: for reading to export every course, for writing to import courses.
+     * Either way the caller gets one end of a pipe and the provider streams the other end on a
+     * background thread.
+     */
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        final int match = sUriMatcher.match(uri);
+        if (match != COURSES_CSV && match != COURSES_JSON) {
+            throw new FileNotFoundException("No file for uri " + uri);
+        }
+        String mimeType = getType(uri);
+        if (mode.contains("w")) {
+            checkCurrentTerm(uri);
+            return openImport(uri, mimeType);
+        }
+        return openPipeHelper(uri, mimeType, null, readableDatabase(uri), mExportWriter);
+    }
+
+    /** The courses uri can also be opened as a CSV or JSON export, see getStreamTypes */
+    @Override
+    public AssetFileDescriptor openTypedAssetFile(Uri uri, String mimeTypeFilter, Bundle opts)
+            throws FileNotFoundException {
+        String[] types = getStreamTypes(uri, mimeTypeFilter);
+        if (types == null) {
+            return super.openTypedAssetFile(uri, mimeTypeFilter, opts);
+        }
+        ParcelFileDescriptor export = openPipeHelper(uri, types[0], opts, readableDatabase(uri), mExportWriter);
+        return new AssetFileDescriptor(export, 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+    }
+
+    @Override
+    public String[] getStreamTypes(Uri uri, String mimeTypeFilter) {
+        if (sUriMatcher.match(uri) != COURSES) {
+            return null;
+        }
+        List<String> types = new ArrayList<>();
+        for (String type : new String[]{CourseContract.CourseEntry.MIME_TYPE_CSV, CourseContract.CourseEntry.MIME_TYPE_JSON}) {
+            if (ClipDescription.compareMimeTypes(type, mimeTypeFilter)) {
+                types.add(type);
+            }
+        }
+        return types.isEmpty() ? null : types.toArray(new String[types.size()]);
+    }
+
+    /** Streams every course of the database in args straight from the cursor into an export pipe, on an AsyncTask thread */
+    private final PipeDataWriter<SQLiteDatabase> mExportWriter = new PipeDataWriter<SQLiteDatabase>() {
+        @Override
+        public void writeDataToPipe(ParcelFileDescriptor output, Uri uri, String mimeType, Bundle opts,
+                                    SQLiteDatabase args) {
+            Cursor cursor = args.query(CourseContract.CourseEntry.TABLE_NAME,
+                    CourseTransfer.EXPORT_COLUMNS, null, null, null, null, CourseContract.CourseEntry._ID);
+            OutputStream out = new ParcelFileDescriptor.AutoCloseOutputStream(output);
+            try {
+                CourseTransfer.write(mimeType, cursor, out);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Export to " + uri + " stopped", e);//usually the reader went away
+            } finally {
+                cursor.close();
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Closing export to " + uri, e);
+                }
+            }
+        }
+    };
+
+    /** Give the caller the write end of a pipe and import whatever it writes on a background thread */
+    private ParcelFileDescriptor openImport(final Uri uri, final String mimeType) throws FileNotFoundException {
+        final ParcelFileDescriptor[] pipe;
+        try {
+            // a reliable pipe lets the writer see that the import failed
+            pipe = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                    ? ParcelFileDescriptor.createReliablePipe() : ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Cannot open a pipe for " + uri);
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                importCourses(uri, mimeType, pipe[0]);
+            }
+        });
+        return pipe[1];
+    }
+
+    /**
+     * Read courses from the pipe and upsert them IMPORT_CHUNK_ROWS at a time, each chunk in its
+     * own transaction, so memory stays flat however long the input is. A bad row or a double
+     * booking stops the import; the chunks before it stay imported.
+     */
+    private void importCourses(Uri uri, String mimeType, ParcelFileDescriptor input) {
+        long start = System.nanoTime();
+        InputStream in = new FileInputStream(input.getFileDescriptor());
+        ContentValues[] chunk = new ContentValues[IMPORT_CHUNK_ROWS];
+        int count = 0;
+        int imported = 0;
+        PendingChanges changes = new PendingChanges();//a re-import only changes what differs
+        String error = null;
+        try {
+            CourseTransfer.CourseReader reader = CourseTransfer.newReader(mimeType, in);
+            ContentValues row;
+            while ((row = reader.next()) != null) {
+                chunk[count++] = row;
+                if (count == chunk.length) {
+                    upsertCourses(uri, chunk, changes);
+                    imported += count;
+                    count = 0;
+                }
+            }
+            if (count > 0) {
+                upsertCourses(uri, Arrays.copyOf(chunk, count), changes);
+                imported += count;
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(LOG_TAG, "Import from " + uri + " stopped after " + imported + " courses", e);
+            error = String.valueOf(e.getMessage());
+        } finally {
+            try {
+                if (error != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    input.closeWithError(error);
+                } else {
+                    input.close();
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Closing import from " + uri, e);
+            }
+        }
+
+        notifyChanges(changes);
+        mMetrics.record(CourseMetrics.OP_IMPORT, uriName(sUriMatcher.match(uri)), start, imported);
+    }
+
+    /**error cases for a course that is about to be bound to the compiled insert statement*/
+    private static void validateNewCourse(ContentValues values) {
+        if (values.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME) == null) {
+            throw new IllegalArgumentException("Course requires a name");
+        }
+        for (String key : values.keySet()) {
+            if (!isInsertColumn(key)) {
+                throw new IllegalArgumentException("Unknown course column " + key);
+            }
+        }
+        for (String column : CourseStatements.COURSE_COLUMNS) {//every column is NOT NULL in the table
+            if (values.getAsString(column) == null) {
+                throw new IllegalArgumentException("Course requires a " + column);
+            }
+        }
+    }
+
+    private static boolean isInsertColumn(String key) {
+        for (String column : CourseStatements.COURSE_COLUMNS) {
+            if (column.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the data at the given selection and selection arguments, with the new ContentValues.
+     */
+    @Override
+    public int update(Uri uri, ContentValues contentValues, String selection, String[] selectionArgs) {
+        long start = System.nanoTime();
+        checkCurrentTerm(uri);
+        final int match = sUriMatcher.match(uri);
+        int rowsUpdated;
+        switch (match) {
+            case COURSES:
+                rowsUpdated = updateCourse(uri, contentValues, selection, selectionArgs, null);
+                break;
+            case COURSES_ID:
+                long id = ContentUris.parseId(uri);
+                if (CourseStatements.hasCourseColumns(contentValues)) {//editor save, compiled statement
+                    rowsUpdated = updateCourseById(uri, id, contentValues);
+                    break;
+                }
+                selection = ID_SELECTION;
+                selectionArgs = new String[] { String.valueOf(id) };
+                rowsUpdated = updateCourse(uri, contentValues, selection, selectionArgs, new long[]{id});
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot update unknown uri" + uri);
+        }
+        mMetrics.record(CourseMetrics.OP_UPDATE, uriName(match), start, rowsUpdated);
+        return rowsUpdated;
+    }
+
+    /** update helper method, ids are the rows the selection can touch or null to look them up for the notification */
+    private int updateCourse(Uri uri, ContentValues values, String selection, String[] selectionArgs, long[] ids) {
+
+        /**same error test cases as in insert*/
+        if (values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_NAME)) {
+            String name = values.getAsString(CourseContract.CourseEntry.COLUMN_COURSE_NAME);
+            if (name == null) {
+                throw new IllegalArgumentException("Course requires a name");
+            }
+        }
+
+        // If there are no values to update
+        if (values.size() == 0) {
+            return 0;
+        }
+
+        // keep the normalized day/time columns in step with the text the user typed
+        values = new ContentValues(values);
+        CourseTimes.putNormalizedColumns(values);
+
+        /**update to database*/
+
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+
+        // moving courses in time or space needs every row checked for double bookings, not just a notification's worth
+        boolean changesBookings = changesBookings(values);
+        int rowsUpdated;
+        db.beginTransactionNonExclusive();
+        try {
+            if (ids == null) {
+                ids = changesBookings ? queryIds(db, selection, selectionArgs, 0) : queryChangedIds(db, selection, selectionArgs);
+            }
+            mStatements.internNames(values);
+            rowsUpdated=db.update(CourseDbHelper.COURSE_ROWS_TABLE,values,rowSelection(selection),selectionArgs);
+            if (changesBookings && rowsUpdated != 0) {
+                updateConflicts(db, uri, ids);
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            if (changesBookings) {
+                mConflicts.invalidate(ids);
+            }
+            throw duplicateCourse(e);
+        } finally {
+            db.endTransaction();
+        }
+
+        // If >1 rows updated, notify listeners which courses changed
+        if (rowsUpdated != 0) {
+            notifyChange(CourseContract.CourseEntry.CHANGE_UPDATE, ids);
+        }
+
+        // Return the number of rows updated
+        return rowsUpdated;
+    }
+
+    /** update helper for a full editor save of one course, validated by hasCourseColumns */
+    private int updateCourseById(Uri uri, long id, ContentValues values) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        int rowsUpdated;
+        db.beginTransactionNonExclusive();
+        try {
+            rowsUpdated = mStatements.updateById(id, values);
+            if (rowsUpdated != 0) {
+                updateConflicts(db, uri, new long[]{id});
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            mConflicts.invalidate(new long[]{id});
+            throw duplicateCourse(e);
+        } finally {
+            db.endTransaction();
+        }
+
+        if (rowsUpdated != 0) {
+            notifyChange(CourseContract.CourseEntry.CHANGE_UPDATE, new long[]{id});
+        }
+        return rowsUpdated;
+    }
+
+    /** true if values move courses to another room, teacher, day or time */
+    private static boolean changesBookings(ContentValues values) {
+        return values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_ROOM)
+                || values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_TEACHER)
+                || values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_DAY)
+                || values.containsKey(CourseContract.CourseEntry.COLUMN_COURSE_TIME);
+    }
+
+    /**
+     * After writing these courses in the current transaction: reject the write by throwing if they
+     * double book a room or teacher, unless the uri allows it, in which case the conflict index
+     * just learns they changed.
+     */
+    private void updateConflicts(SQLiteDatabase db, Uri uri, long[] ids) {
+        if ("true".equals(uri.getQueryParameter(CourseContract.CourseEntry.PARAM_ALLOW_CONFLICTS))) {
+            mConflicts.invalidate(ids);
+        } else {
+            mConflicts.check(db, ids);
+        }
+    }
+
+    /**
+     * Delete the data at the given selection and selection arguments.
+     */
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return delete(uri, selection, selectionArgs, null);
+    }
+
+    /** delete(), a soft delete puts its generation in result under DELETE_GENERATION if result isn't null */
+    private int delete(Uri uri, String selection, String[] selectionArgs, Bundle result) {
+        long start = System.nanoTime();
+        checkCurrentTerm(uri);
+
+        SQLiteDatabase database = mDbHelper.getWritableDatabase();
+
+        int rowsDeleted;
+        long[] ids;
+        boolean soft = "true".equals(uri.getQueryParameter(CourseContract.CourseEntry.PARAM_SOFT));
+
+        final int match = sUriMatcher.match(uri);
+        switch (match) {
+            case COURSES:
+                // Delete all rows that match the selection and selection args
+                database.beginTransactionNonExclusive();
+                try {
+                    ids = queryChangedIds(database, selection, selectionArgs);
+                    rowsDeleted = soft ? softDelete(database, selection, selectionArgs, result)
+                            : database.delete(CourseDbHelper.COURSE_ROWS_TABLE, rowSelection(selection), selectionArgs);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+                break;
+            case COURSES_ID:
+                // Delete a single row given by the ID in the URI
+                ids = new long[]{ContentUris.parseId(uri)};
+                if (!soft) {
+                    rowsDeleted = mStatements.deleteById(ids[0]);
+                    break;
+                }
+                database.beginTransactionNonExclusive();
+                try {
+                    rowsDeleted = softDelete(database, ID_SELECTION, new String[]{String.valueOf(ids[0])}, result);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot delete unknown uri " + uri);
+        }
+        // If >1 rows deleted, notify listeners which courses are gone
+        if (rowsDeleted != 0) {
+            if (soft) {
+                mDeletions.schedulePurge();
+            }
+            notifyChange(CourseContract.CourseEntry.CHANGE_DELETE, ids);
+        }
+        mMetrics.record(CourseMetrics.OP_DELETE, uriName(match), start, rowsDeleted);
+        // Return the number of rows deleted
+        return rowsDeleted;
+    }
+
+    /**
+     * Apply a mixed batch of insert/update/delete operations atomically in one transaction.
+     * Back-references are resolved by {@link ContentProviderOperation} as each operation runs,
+     * and change notifications are merged and sent once per kind of change after the commit.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        long start = System.nanoTime();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        PendingChanges pending = new PendingChanges();
+        ContentProviderResult[] results;
+
+        mPendingChanges.set(pending);
+        db.beginTransactionNonExclusive();
+        boolean committed = false;
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+            committed = true;
+        } finally {
+            db.endTransaction();
+            mPendingChanges.remove();
+            if (!committed) {
+                // rolled back, forget anything read inside the batch
+                mCache.invalidate(null);
+                mConflicts.invalidate(null);
+            }
+        }
+
+        //batch committed, drop anything a reader cached from before the commit and tell the listeners
+        for (Map.Entry<String, Set<Long>> entry : pending.mIds.entrySet()) {
+            long[] idArray = PendingChanges.toArray(entry.getValue());
+            mCache.invalidate(idArray);
+            mConflicts.invalidate(idArray);
+            mMetrics.recordNotification(entry.getKey());
+            getContext().getContentResolver().notifyChange(
+                    CourseChangeObserver.buildChangeUri(entry.getKey(), idArray), null);
+        }
+        if (!pending.mIds.isEmpty()) {
+            mSnapshot.scheduleWrite();
+        }
+        mMetrics.record(CourseMetrics.OP_APPLY_BATCH, CourseContract.PATH_COURSES, start, operations.size());
+        return results;
+    }
+
+    /**
+     * notify listeners which courses changed (ids null if unknown), or hold it back until the
+     * current batch commits. Cached copies of the courses are dropped right away either way.
+     */
+    private void notifyChange(String change, long[] ids) {
+        mCache.invalidate(ids);
+        mConflicts.invalidate(ids);//the index may hold them as their uncommitted transaction saw them
+        PendingChanges pending = mPendingChanges.get();
+        if (pending != null) {
+            pending.add(change, ids);
+            return;
+        }
+        mMetrics.recordNotification(change);
+        getContext().getContentResolver().notifyChange(CourseChangeObserver.buildChangeUri(change, ids), null);
+        mSnapshot.scheduleWrite();
+    }
+
+    /** notify (or hold back, in a batch) every kind of change collected outside of applyBatch() */
+    private void notifyChanges(PendingChanges changes) {
+        for (Map.Entry<String, Set<Long>> entry : changes.mIds.entrySet()) {
+            notifyChange(entry.getKey(), PendingChanges.toArray(entry.getValue()));
+        }
+    }
+
+    /**
+     * ids of the rows a selection covers, for the change notification of an update or delete.
+     * Null when there are more than a notification lists, observers just reload then.
+     */
+    private static long[] queryChangedIds(SQLiteDatabase db, String selection, String[] selectionArgs) {
+        long[] ids = queryIds(db, selection, selectionArgs, CourseChangeObserver.MAX_NOTIFIED_IDS + 1);
+        return ids.length > CourseChangeObserver.MAX_NOTIFIED_IDS ? null : ids;
+    }
+
+    /**
+     * A caller's selection, written against the courses view, for an update or delete of the
+     * course rows underneath it. Room and teacher are names in the view but ids in the rows,
+     * and soft deleted rows are left alone.
+     */
+    private static String rowSelection(String selection) {
+        if (selection != null && !ID_SELECTION.equals(selection)) {
+            selection = CourseContract.CourseEntry._ID + " IN (SELECT " + CourseContract.CourseEntry._ID + " FROM " +
+                    CourseContract.CourseEntry.TABLE_NAME + " WHERE (" + selection + "))";
+        }
+        return DatabaseUtils.concatenateWhere(CourseDbHelper.LIVE_SELECTION, selection);
+    }
+
+    /**
+     * hide the courses a selection covers under a new deletion generation, in the current
+     * transaction. The generation goes in result, -1 if nothing was hidden, unless it's null.
+     */
+    private static int softDelete(SQLiteDatabase db, String selection, String[] selectionArgs, Bundle result) {
+        long generation = CourseDeletions.newGeneration(db);
+        int rows = CourseDeletions.hide(db, generation, rowSelection(selection), selectionArgs);
+        if (rows == 0) {
+            CourseDeletions.discard(db, generation);//so undoing the latest delete doesn't find an empty one
+            generation = -1;
+        }
+        if (result != null) {
+            result.putLong(CourseContract.DELETE_GENERATION, generation);
+        }
+        return rows;
+    }
+
+    /** Bring back the courses of a soft delete, generation null for the latest, returns how many */
+    private int undoDelete(String generation) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long[] ids = null;
+        db.beginTransactionNonExclusive();
+        try {
+            long undone;
+            try {
+                undone = generation == null ? CourseDeletions.latestGeneration(db) : Long.parseLong(generation);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid generation " + generation);
+            }
+            if (undone != -1 && CourseDeletions.canRestore(db, undone)) {
+                ids = CourseDeletions.restore(db, undone);
+                mConflicts.check(db, ids);//someone may have taken their room or teacher in the meantime
+            }
+            db.setTransactionSuccessful();
+        } catch (RuntimeException e) {
+            if (ids != null) {
+                mConflicts.invalidate(ids);
+            }
+            throw e;
+        } finally {
+            db.endTransaction();
+        }
+
+        int restored = ids == null ? 0 : ids.length;
+        if (restored != 0) {
+            notifyChange(CourseContract.CourseEntry.CHANGE_INSERT,
+                    restored > CourseChangeObserver.MAX_NOTIFIED_IDS ? null : ids);
+        }
+        mMetrics.record(CourseMetrics.OP_UNDO_DELETE, CourseContract.PATH_COURSES, start, restored);
+        return restored;
+    }
+
+    /**
+     * Move every live course into a new archived term and compact its file. The current
+     * database's write lock is held from before the copy until its courses are deleted, so no
+     * write can land in between and be lost. Courses still waiting in the undo window stay.
+     * The archive only takes the term's name once the delete has committed, and without live
+     * courses there is no archive at all.
+     */
+    private int archiveTerm(String term) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long[] ids;
+        int rows;
+        boolean committed = false;
+        try {
+            db.beginTransaction();//exclusive, writers wait until the courses are gone here as well
+            try {
+                ids = queryChangedIds(db, null, null);
+                rows = mTerms.archive(db, term);
+                if (rows != 0) {
+                    db.delete(CourseDbHelper.COURSE_ROWS_TABLE, CourseDbHelper.LIVE_SELECTION, null);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            committed = true;
+        } finally {
+            if (!committed) {
+                mTerms.discard(term);//the courses stay current, don't keep a copy of them as well
+            }
+        }
+
+        if (rows != 0) {
+            mTerms.publish(term);
+            notifyChange(CourseContract.CourseEntry.CHANGE_DELETE, ids);
+            mTerms.compact(term);
+        }
+        mMetrics.record(CourseMetrics.OP_ARCHIVE_TERM, CourseContract.PATH_COURSES, start, rows);
+        return rows;
+    }
+
+    /** ids of the rows a selection covers, at most limit of them or all for a limit of 0 */
+    private static long[] queryIds(SQLiteDatabase db, String selection, String[] selectionArgs, int limit) {
+        Cursor cursor = db.query(CourseContract.CourseEntry.TABLE_NAME, new String[]{CourseContract.CourseEntry._ID},
+                selection, selectionArgs, null, null, null, limit > 0 ? String.valueOf(limit) : null);
+        try {
+            long[] ids = new long[cursor.getCount()];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(0);
+            }
+            return ids;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** Changes made during an applyBatch(), merged per kind of change. A null id set means too many to list */
+    private static final class PendingChanges {
+        final Map<String, Set<Long>> mIds = new LinkedHashMap<>();
+        /** rows changed, counted even once there are too many to list */
+        int mRows;
+
+        void add(String change, long[] ids) {
+            if (ids != null) {
+                mRows += ids.length;
+            }
+            if (!mIds.containsKey(change)) {
+                mIds.put(change, new LinkedHashSet<Long>());
+            }
+            Set<Long> known = mIds.get(change);
+            if (known == null) {
+                return;
+            }
+            if (ids == null || known.size() + ids.length > CourseChangeObserver.MAX_NOTIFIED_IDS) {
+                mIds.put(change, null);
+                return;
+            }
+            for (long id : ids) {
+                known.add(id);
+            }
+        }
+
+        /** the ids of one kind of change as an array, null for too many */
+        static long[] toArray(Set<Long> ids) {
+            if (ids == null) {
+                return null;
+            }
+            long[] array = new long[ids.size()];
+            int i = 0;
+            for (long id : ids) {
+                array[i++] = id;
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Provider methods that aren't queries, see CourseContract.METHOD_CACHE_STATS,
+     * METHOD_METRICS, METHOD_RESET_METRICS and the METHOD_ constants after them.
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (CourseContract.METHOD_CACHE_STATS.equals(method)) {
+            return mCache.getStats();
+        }
+        if (CourseContract.METHOD_METRICS.equals(method)) {
+            return mMetrics.getMetrics();
+        }
+        if (CourseContract.METHOD_RESET_METRICS.equals(method)) {
+            mMetrics.reset();
+            return null;
+        }
+        if (CourseContract.METHOD_SOFT_DELETE.equals(method)) {
+            Bundle result = new Bundle();
+            Uri softDeleteUri = CourseContract.CourseEntry.CONTENT_URI.buildUpon()
+                    .appendQueryParameter(CourseContract.CourseEntry.PARAM_SOFT, "true").build();
+            result.putInt(CourseContract.DELETE_ROWS, delete(softDeleteUri, null, null, result));
+            return result;
+        }
+        if (CourseContract.METHOD_UNDO_DELETE.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(CourseContract.UNDO_ROWS, undoDelete(arg));
+            return result;
+        }
+        if (CourseContract.METHOD_ARCHIVE_TERM.equals(method)) {
+            Bundle result = new Bundle();
+            result.putInt(CourseContract.ARCHIVE_ROWS, archiveTerm(arg));
+            return result;
+        }
+        if (CourseContract.METHOD_COMPACT_TERM.equals(method)) {
+            mTerms.compact(arg);
+            return null;
+        }
+        if (CourseContract.METHOD_TERMS.equals(method)) {
+            Bundle result = new Bundle();
+            result.putStringArray(CourseContract.TERMS, mTerms.list());
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Returns the MIME type of data for the content URI.
+     */
+    @Override
+    public String getType(Uri uri) {
+        final int match = sUriMatcher.match(uri);
+        switch (match) {
+            case COURSES:
+            case COURSES_UPSERT://inserted into like the courses it adds to
+                return CourseContract.CourseEntry.CONTENT_LIST_TYPE;
+            case COURSES_ID:
+                return CourseContract.CourseEntry.CONTENT_ITEM_TYPE;
+            case COURSES_SCHEDULE:
+            case COURSES_SEARCH:
+            case COURSES_CONFLICTS:
+            case COURSES_FREE:
+            case COURSES_CHANGES:
+            case COURSES_DAY:
+            case COURSES_TEACHER:
+            case COURSES_ROOM:
+            case COURSES_STATS:
+                return CourseContract.CourseEntry.CONTENT_LIST_TYPE;
+            case COURSES_CSV:
+                return CourseContract.CourseEntry.MIME_TYPE_CSV;
+            case COURSES_JSON:
+                return CourseContract.CourseEntry.MIME_TYPE_JSON;
+            default:
+                throw new IllegalStateException("Unknown URI " + uri + " with match " + match);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.example.android.courses;
+
+import java.util.List;
+
+/**
+ * A day as a bitset of 5 minute slots, one bit per slot that is booked. A room or teacher's day
+ * fits in five longs, so combining schedules is a handful of ORs and finding free time is a
+ * scan for runs of clear bits a word at a time.
+ */
+final class CourseSlots {
+    private CourseSlots() {}
+
+    static final int SLOT_MINUTES = 5;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) / 64;
+
+    static long[] newDay() {
+        return new long[WORDS_PER_DAY];
+    }
+
+    /** mark [startMinute, endMinute) booked, rounding out to whole slots */
+    static void markBusy(long[] slots, int startMinute, int endMinute) {
+        int first = Math.max(0, startMinute / SLOT_MINUTES);
+        int last = Math.min(SLOTS_PER_DAY, (endMinute + SLOT_MINUTES - 1) / SLOT_MINUTES) - 1;
+        if (last < first) {
+            return;
+        }
+        for (int word = first >>> 6; word <= last >>> 6; word++) {
+            long mask = -1L;
+            if (word == first >>> 6) {
+                mask &= -1L << (first & 63);
+            }
+            if (word == last >>> 6) {
+                mask &= -1L >>> (63 - (last & 63));
+            }
+            slots[word] |= mask;
+        }
+    }
+
+    /** busy |= other, other may be null for a day with nothing booked */
+    static void or(long[] busy, long[] other) {
+        if (other == null) {
+            return;
+        }
+        for (int i = 0; i < WORDS_PER_DAY; i++) {
+            busy[i] |= other[i];
+        }
+    }
+
+    /**
+     * Every maximal free stretch of at least minutes inside [fromMinute, toMinute), added to free
+     * as {start minute, end minute}. Only whole free slots count.
+     */
+    static void findFree(long[] busy, int fromMinute, int toMinute, int minutes, List<int[]> free) {
+        int fromSlot = (fromMinute + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        int toSlot = Math.min(SLOTS_PER_DAY, toMinute / SLOT_MINUTES);
+        int minSlots = Math.max(1, (minutes + SLOT_MINUTES - 1) / SLOT_MINUTES);
+        int slot = fromSlot;
+        while (slot < toSlot) {
+            int start = nextSlot(busy, slot, toSlot, false);
+            if (start >= toSlot) {
+                break;
+            }
+            int end = nextSlot(busy, start, toSlot, true);
+            if (end - start >= minSlots) {
+                free.add(new int[]{start * SLOT_MINUTES, end * SLOT_MINUTES});
+            }
+            slot = end;
+        }
+    }
+
+    /** first slot at or after from, before limit, that is busy (or free), limit if there is none */
+    private static int nextSlot(long[] busy, int from, int limit, boolean wantBusy) {
+        int word = from >>> 6;
+        long bits = (wantBusy ? busy[word] : ~busy[word]) & (-1L << (from & 63));
+        while (bits == 0) {
+            if (++word >= WORDS_PER_DAY || word << 6 >= limit) {
+                return limit;
+            }
+            bits = wantBusy ? busy[word] : ~busy[word];
+        }
+        return Math.min(limit, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+}
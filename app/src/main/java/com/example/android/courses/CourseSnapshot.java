@@ -0,0 +1,149 @@
+package com.example.android.courses;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The first courses of the catalog, by name, saved to a small file so a cold start can show them
+ * before the database is even open. The provider asks for a rewrite after every committed write;
+ * rewrites are coalesced and done on a background thread, reading the committed rows.
+ */
+final class CourseSnapshot {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = CourseSnapshot.class.getSimpleName();
+
+    private static final String FILE_NAME = "catalog.snapshot";
+    /** "CSNP", then the format version, then a {@link CourseList} */
+    private static final int MAGIC = 0x43534e50;
+    private static final int FORMAT_VERSION = 1;
+
+    /** Courses kept, a few screens' worth so the list can scroll before the live query lands */
+    static final int MAX_COURSES = 200;
+
+    /** How long after a write the snapshot is rewritten, so a burst of writes costs one rewrite */
+    private static final long WRITE_DELAY_MS = 1000;
+
+    private static final String[] PROJECTION = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_NAME,
+            CourseEntry.COLUMN_COURSE_ROOM};
+
+    private final File mFile;
+    private final CourseDbHelper mDbHelper;
+    private Handler mWorker;
+
+    CourseSnapshot(Context context, CourseDbHelper dbHelper) {
+        mFile = new File(context.getCacheDir(), FILE_NAME);
+        mDbHelper = dbHelper;
+    }
+
+    /** The saved courses, or null if there's no usable snapshot. Small enough to read on the main thread */
+    static CourseList read(Context context) {
+        File file = new File(context.getCacheDir(), FILE_NAME);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            return CourseList.readFrom(in);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Ignoring unreadable catalog snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /** Rewrite the snapshot soon, call after a write commits */
+    synchronized void scheduleWrite() {
+        if (mWorker == null) {
+            HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            mWorker = new Handler(thread.getLooper());
+        }
+        mWorker.removeCallbacks(mWrite);
+        mWorker.postDelayed(mWrite, WRITE_DELAY_MS);
+    }
+
+    /** Write a first snapshot soon if there isn't one, e.g. right after an update of the app */
+    void scheduleWriteIfMissing() {
+        if (!mFile.exists()) {
+            scheduleWrite();
+        }
+    }
+
+    private final Runnable mWrite = new Runnable() {
+        @Override
+        public void run() {
+            CourseList courses;
+            try {
+                Cursor cursor = mDbHelper.getReadableDatabase().query(CourseEntry.TABLE_NAME, PROJECTION,
+                        null, null, null, null, CourseEntry.COLUMN_COURSE_NAME + "," + CourseEntry._ID,
+                        String.valueOf(MAX_COURSES));
+                try {
+                    courses = CourseList.fromCursor(cursor);
+                } finally {
+                    cursor.close();
+                }
+            } catch (SQLiteException e) {
+                Log.w(LOG_TAG, "Failed to read the courses for the catalog snapshot", e);
+                return;
+            }
+            write(courses);
+        }
+    };
+
+    /** write to a temporary file and rename it over the old one, so a reader never sees half a snapshot */
+    private void write(CourseList courses) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            courses.writeTo(out);
+            out.close();
+            out = null;
+            if (!temp.renameTo(mFile)) {
+                throw new IOException("Cannot rename " + temp + " to " + mFile);
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Failed to write the catalog snapshot", e);
+            closeQuietly(out);
+            temp.delete();
+            mFile.delete();//an old snapshot would show courses that have changed since
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // nothing left to do with it
+            }
+        }
+    }
+}
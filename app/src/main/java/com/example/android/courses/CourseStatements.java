@@ -0,0 +1,234 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Compiled statements for the provider's per-row hot paths: inserting the column set the editor
+ * saves, updating it by id and deleting by id. Statements are pooled and reused with fresh
+ * bindings instead of building SQL and ContentValues maps for every row.
+ *
+ * Rows are written to the course rows table, room and teacher names interned into their own
+ * tables on the way in. Only call these inside a write transaction, so a name looked up and
+ * found missing is still missing when it's added.
+ */
+final class CourseStatements {
+
+    /** The columns EditorActivity always saves, in the order they are bound */
+    static final String[] COURSE_COLUMNS = {
+            CourseEntry.COLUMN_COURSE_NAME,
+            CourseEntry.COLUMN_COURSE_ROOM,
+            CourseEntry.COLUMN_COURSE_TEACHER,
+            CourseEntry.COLUMN_COURSE_TIME,
+            CourseEntry.COLUMN_COURSE_DAY};
+
+    /**
+     * The course rows table's columns for COURSE_COLUMNS, room and teacher replaced by their ids,
+     * followed by the normalized day/time columns derived from them
+     */
+    private static final String ALL_COLUMNS = CourseEntry.COLUMN_COURSE_NAME + "," +
+            CourseDbHelper.COLUMN_ROOM_ID + "," +
+            CourseDbHelper.COLUMN_TEACHER_ID + "," +
+            CourseEntry.COLUMN_COURSE_TIME + "," +
+            CourseEntry.COLUMN_COURSE_DAY + "," +
+            CourseEntry.COLUMN_COURSE_DAY_OF_WEEK + "," +
+            CourseEntry.COLUMN_COURSE_START_MINUTE + "," +
+            CourseEntry.COLUMN_COURSE_END_MINUTE;
+    private static final int ALL_COLUMN_COUNT = COURSE_COLUMNS.length + 3;
+
+    private static final String SQL_INSERT = "INSERT INTO " + CourseDbHelper.COURSE_ROWS_TABLE +
+            " (" + ALL_COLUMNS + ") VALUES (?,?,?,?,?,?,?,?)";
+    private static final String SQL_UPDATE_BY_ID = "UPDATE " + CourseDbHelper.COURSE_ROWS_TABLE + " SET " +
+            TextUtils.join("=?,", ALL_COLUMNS.split(",")) + "=? WHERE " + CourseEntry._ID + "=? AND " +
+            CourseDbHelper.LIVE_SELECTION;
+    private static final String SQL_DELETE_BY_ID = "DELETE FROM " + CourseDbHelper.COURSE_ROWS_TABLE +
+            " WHERE " + CourseEntry._ID + "=? AND " + CourseDbHelper.LIVE_SELECTION;
+
+    /** idle statements kept per pool, more than this many concurrent writers just compile their own */
+    private static final int MAX_IDLE_STATEMENTS = 4;
+
+    private final CourseDbHelper mDbHelper;
+    private final Pool mInsert = new Pool(SQL_INSERT);
+    private final Pool mUpdateById = new Pool(SQL_UPDATE_BY_ID);
+    private final Pool mDeleteById = new Pool(SQL_DELETE_BY_ID);
+    private final Pool mFindRoom = new Pool(findName(CourseDbHelper.ROOMS_TABLE));
+    private final Pool mAddRoom = new Pool(addName(CourseDbHelper.ROOMS_TABLE));
+    private final Pool mFindTeacher = new Pool(findName(CourseDbHelper.TEACHERS_TABLE));
+    private final Pool mAddTeacher = new Pool(addName(CourseDbHelper.TEACHERS_TABLE));
+
+    CourseStatements(CourseDbHelper dbHelper) {
+        mDbHelper = dbHelper;
+    }
+
+    /** true if values holds exactly the editor's column set with no nulls, so the compiled paths apply */
+    static boolean hasCourseColumns(ContentValues values) {
+        if (values.size() != COURSE_COLUMNS.length) {
+            return false;
+        }
+        for (String column : COURSE_COLUMNS) {
+            if (values.getAsString(column) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Start a run of inserts through one statement, e.g. for a bulk insert. Hand it back with {@link #release} */
+    SQLiteStatement acquireInsert() {
+        return mInsert.acquire(mDbHelper.getWritableDatabase());
+    }
+
+    void release(SQLiteStatement statement) {
+        mInsert.release(statement);
+    }
+
+    /** Bind a course's columns to an insert statement from {@link #acquireInsert} and run it */
+    long executeInsert(SQLiteStatement insert, ContentValues values) {
+        insert.clearBindings();
+        bindCourse(insert, values);
+        return insert.executeInsert();
+    }
+
+    /** Insert a course that has {@link #hasCourseColumns}, returns the new row id */
+    long insert(ContentValues values) {
+        SQLiteStatement insert = acquireInsert();
+        try {
+            return executeInsert(insert, values);
+        } finally {
+            release(insert);
+        }
+    }
+
+    /** Update every column of a course that has {@link #hasCourseColumns}, returns rows updated */
+    int updateById(long id, ContentValues values) {
+        SQLiteStatement update = mUpdateById.acquire(mDbHelper.getWritableDatabase());
+        try {
+            bindCourse(update, values);
+            update.bindLong(ALL_COLUMN_COUNT + 1, id);
+            return update.executeUpdateDelete();
+        } finally {
+            mUpdateById.release(update);
+        }
+    }
+
+    /** Delete a single course, returns rows deleted */
+    int deleteById(long id) {
+        SQLiteStatement delete = mDeleteById.acquire(mDbHelper.getWritableDatabase());
+        try {
+            delete.bindLong(1, id);
+            return delete.executeUpdateDelete();
+        } finally {
+            mDeleteById.release(delete);
+        }
+    }
+
+    /**
+     * For a write of arbitrary columns to the course rows table: swap the room and teacher names
+     * in values for their ids, adding names not seen before. Null stays null for the constraints to reject.
+     */
+    void internNames(ContentValues values) {
+        internName(values, CourseEntry.COLUMN_COURSE_ROOM, CourseDbHelper.COLUMN_ROOM_ID, mFindRoom, mAddRoom);
+        internName(values, CourseEntry.COLUMN_COURSE_TEACHER, CourseDbHelper.COLUMN_TEACHER_ID, mFindTeacher, mAddTeacher);
+    }
+
+    private void internName(ContentValues values, String column, String idColumn, Pool find, Pool add) {
+        if (!values.containsKey(column)) {
+            return;
+        }
+        String name = values.getAsString(column);
+        values.remove(column);
+        if (name == null) {
+            values.putNull(idColumn);
+        } else {
+            values.put(idColumn, nameId(name, find, add));
+        }
+    }
+
+    /** id of a room or teacher name, adding it if it's new */
+    private long nameId(String name, Pool find, Pool add) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        SQLiteStatement statement = find.acquire(db);
+        try {
+            statement.bindString(1, name);
+            return statement.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            // not there yet, fall through and add it
+        } finally {
+            find.release(statement);
+        }
+        statement = add.acquire(db);
+        try {
+            statement.bindString(1, name);
+            return statement.executeInsert();
+        } finally {
+            add.release(statement);
+        }
+    }
+
+    private static String findName(String table) {
+        return "SELECT " + CourseEntry._ID + " FROM " + table + " WHERE " + CourseDbHelper.COLUMN_NAME + "=?";
+    }
+
+    private static String addName(String table) {
+        return "INSERT INTO " + table + " (" + CourseDbHelper.COLUMN_NAME + ") VALUES (?)";
+    }
+
+    /** bind COURSE_COLUMNS, room and teacher as ids, then day of week, start and end minute, left null when they don't parse */
+    private void bindCourse(SQLiteStatement statement, ContentValues values) {
+        statement.bindString(1, values.getAsString(CourseEntry.COLUMN_COURSE_NAME));
+        statement.bindLong(2, nameId(values.getAsString(CourseEntry.COLUMN_COURSE_ROOM), mFindRoom, mAddRoom));
+        statement.bindLong(3, nameId(values.getAsString(CourseEntry.COLUMN_COURSE_TEACHER), mFindTeacher, mAddTeacher));
+        statement.bindString(4, values.getAsString(CourseEntry.COLUMN_COURSE_TIME));
+        statement.bindString(5, values.getAsString(CourseEntry.COLUMN_COURSE_DAY));
+        int index = COURSE_COLUMNS.length + 1;
+        Integer dayOfWeek = CourseTimes.parseDayOfWeek(values.getAsString(CourseEntry.COLUMN_COURSE_DAY));
+        int[] range = CourseTimes.parseTimeRange(values.getAsString(CourseEntry.COLUMN_COURSE_TIME));
+        if (dayOfWeek != null) {
+            statement.bindLong(index, dayOfWeek);
+        } else {
+            statement.bindNull(index);
+        }
+        if (range != null) {
+            statement.bindLong(index + 1, range[0]);
+            statement.bindLong(index + 2, range[1]);
+        } else {
+            statement.bindNull(index + 1);
+            statement.bindNull(index + 2);
+        }
+    }
+
+    /**
+     * Idle compiled statements for one piece of SQL. A statement is only ever used by the thread
+     * that acquired it, and no lock is held while it runs, so a writer inside an applyBatch()
+     * transaction can't deadlock against one waiting for a statement.
+     */
+    private static final class Pool {
+        private final String mSql;
+        private final ConcurrentLinkedQueue<SQLiteStatement> mIdle = new ConcurrentLinkedQueue<>();
+
+        Pool(String sql) {
+            mSql = sql;
+        }
+
+        SQLiteStatement acquire(SQLiteDatabase db) {
+            SQLiteStatement statement = mIdle.poll();
+            return statement != null ? statement : db.compileStatement(mSql);
+        }
+
+        void release(SQLiteStatement statement) {
+            statement.clearBindings();
+            if (mIdle.size() < MAX_IDLE_STATEMENTS) {
+                mIdle.offer(statement);
+            } else {
+                statement.close();
+            }
+        }
+    }
+}
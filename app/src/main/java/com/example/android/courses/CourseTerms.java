@@ -0,0 +1,309 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Archived terms, each in a database file of its own next to the current one and with the same
+ * schema, so past terms add nothing to the scans, indexes and deletes of the courses in use. An
+ * archive is written once when its term ends and only read after that. Reading several terms
+ * at once attaches their files to a throwaway in-memory database, never to the current one,
+ * whose connection would have to give up write-ahead logging for an ATTACH.
+ *
+ * A new archive is written under a pending name that no term can have, and only renamed to
+ * its term once the current database has dropped the courses it holds. A pending archive left
+ * by a process that died in between is finished or thrown away the next time terms are used,
+ * depending on whether that delete committed.
+ */
+final class CourseTerms {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = CourseTerms.class.getSimpleName();
+
+    /** What an archived term may be called, it becomes part of a file name */
+    private static final Pattern TERM_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    /** SQLite's default limit on attached databases */
+    private static final int MAX_TERMS = 10;
+
+    /** What a term's archive is called while it's being written, TERM_NAME has no '.' */
+    private static final String PENDING_SUFFIX = ".pending";
+
+    private final Context mContext;
+    private final CourseDbHelper mCurrent;
+    /** helpers of the archives opened so far, by term */
+    private final Map<String, CourseDbHelper> mHelpers = new HashMap<>();
+    /** helpers of archives written but not yet renamed to their term, by term */
+    private final Map<String, CourseDbHelper> mPending = new HashMap<>();
+    private boolean mRecovered;
+
+    CourseTerms(Context context, CourseDbHelper current) {
+        mContext = context;
+        mCurrent = current;
+    }
+
+    /**
+     * The names of the archived terms, sorted. The files are looked up where getDatabasePath()
+     * puts them, as exists() does, whatever name the context gives them there.
+     */
+    String[] list() {
+        recover();
+        File prefix = mContext.getDatabasePath(CourseDbHelper.ARCHIVE_PREFIX);
+        String[] files = prefix.getParentFile().list();
+        List<String> terms = new ArrayList<>();
+        for (String file : files == null ? new String[0] : files) {
+            if (file.startsWith(prefix.getName()) && file.endsWith(CourseDbHelper.ARCHIVE_SUFFIX)) {
+                String term = file.substring(prefix.getName().length(),
+                        file.length() - CourseDbHelper.ARCHIVE_SUFFIX.length());
+                if (TERM_NAME.matcher(term).matches()) {
+                    terms.add(term);
+                }
+            }
+        }
+        String[] names = terms.toArray(new String[terms.size()]);
+        Arrays.sort(names);
+        return names;
+    }
+
+    /** The database of an archived term, throws IllegalArgumentException if there is none */
+    SQLiteDatabase open(String term) {
+        return helper(term).getWritableDatabase();
+    }
+
+    /** Rebuild an archived term's file without the free pages its archiving left behind */
+    void compact(String term) {
+        open(term).execSQL("VACUUM");
+    }
+
+    /**
+     * Copy the live courses of the current database, with its rooms and teachers, into a pending
+     * archive for term and return how many there were, 0 without writing anything if there are
+     * none. Call it in a transaction holding the current database's write lock, so nothing
+     * changes between the copy and deleting the courses there, then publish() the archive once
+     * that transaction has committed or discard() it if it didn't. The archive's own triggers
+     * fill in its search index, keys and statistics.
+     *
+     * The rows are read through current, the caller's connection, and written in one transaction
+     * on the archive's, which has nothing attached: a transaction there would otherwise want the
+     * write lock of the current database as well, which the caller holds until this returns.
+     */
+    int archive(SQLiteDatabase current, String term) {
+        checkName(term);
+        recover();
+        if (exists(term)) {
+            throw new IllegalArgumentException("Term " + term + " is already archived");
+        }
+        if (DatabaseUtils.queryNumEntries(current, CourseDbHelper.COURSE_ROWS_TABLE,
+                CourseDbHelper.LIVE_SELECTION) == 0) {
+            return 0;
+        }
+        CourseDbHelper helper = new CourseDbHelper(mContext, term + PENDING_SUFFIX);
+        mContext.deleteDatabase(helper.getDatabaseName());//left by an archive of term that failed before
+        int rows;
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                copy(current, db, CourseDbHelper.ROOMS_TABLE, null);
+                copy(current, db, CourseDbHelper.TEACHERS_TABLE, null);
+                rows = copy(current, db, CourseDbHelper.COURSE_ROWS_TABLE, CourseDbHelper.LIVE_SELECTION);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            helper.close();
+            mContext.deleteDatabase(helper.getDatabaseName());
+            throw e;
+        }
+        synchronized (mPending) {
+            mPending.put(term, helper);
+        }
+        return rows;
+    }
+
+    /** Make the pending archive of term a term, once the current database no longer has its courses */
+    void publish(String term) {
+        CourseDbHelper helper;
+        synchronized (mPending) {
+            helper = mPending.remove(term);
+        }
+        if (helper != null) {
+            helper.close();
+            rename(helper.getDatabaseName(), term);
+        }
+    }
+
+    /** Delete the pending archive of term, when its courses couldn't be deleted from the current database */
+    void discard(String term) {
+        CourseDbHelper helper;
+        synchronized (mPending) {
+            helper = mPending.remove(term);
+        }
+        if (helper != null) {
+            helper.close();
+            mContext.deleteDatabase(helper.getDatabaseName());
+        }
+    }
+
+    /** rows of a table in from, all of them for a null selection, inserted into the same table in to */
+    private static int copy(SQLiteDatabase from, SQLiteDatabase to, String table, String selection) {
+        Cursor cursor = from.query(table, null, selection, null, null, null, CourseEntry._ID);
+        try {
+            ContentValues values = new ContentValues(cursor.getColumnCount());
+            while (cursor.moveToNext()) {
+                values.clear();
+                DatabaseUtils.cursorRowToContentValues(cursor, values);
+                to.insertOrThrow(table, null, values);
+            }
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Finish the archives a process died in the middle of, once per process before the terms are
+     * first used. An archive's courses keep their ids and ids are never reused, so if the current
+     * database still has the first of them its delete never committed and the archive goes.
+     */
+    private void recover() {
+        synchronized (mPending) {
+            if (!mRecovered) {
+                recoverPending();
+                mRecovered = true;
+            }
+        }
+    }
+
+    private void recoverPending() {
+        String prefix = mContext.getDatabasePath(CourseDbHelper.ARCHIVE_PREFIX).getName();
+        String suffix = PENDING_SUFFIX + CourseDbHelper.ARCHIVE_SUFFIX;
+        String[] files = mContext.getDatabasePath(CourseDbHelper.ARCHIVE_PREFIX).getParentFile().list();
+        for (String file : files == null ? new String[0] : files) {
+            if (!file.startsWith(prefix) || !file.endsWith(suffix)) {
+                continue;
+            }
+            String term = file.substring(prefix.length(), file.length() - suffix.length());
+            if (!TERM_NAME.matcher(term).matches()) {
+                continue;
+            }
+            CourseDbHelper helper = new CourseDbHelper(mContext, term + PENDING_SUFFIX);
+            boolean published;
+            try {
+                long first = DatabaseUtils.longForQuery(helper.getReadableDatabase(), "SELECT IFNULL(MIN(" +
+                        CourseEntry._ID + "),-1) FROM " + CourseDbHelper.COURSE_ROWS_TABLE, null);
+                published = first != -1 && DatabaseUtils.queryNumEntries(mCurrent.getReadableDatabase(),
+                        CourseDbHelper.COURSE_ROWS_TABLE, CourseEntry._ID + "=?",
+                        new String[]{String.valueOf(first)}) == 0;
+            } finally {
+                helper.close();
+            }
+            if (published && !exists(term)) {
+                rename(helper.getDatabaseName(), term);
+            } else {
+                mContext.deleteDatabase(helper.getDatabaseName());
+            }
+        }
+    }
+
+    /** Move a pending archive to its term's name, then drop the journal it leaves behind */
+    private void rename(String pending, String term) {
+        File archive = mContext.getDatabasePath(CourseDbHelper.ARCHIVE_PREFIX + term + CourseDbHelper.ARCHIVE_SUFFIX);
+        if (mContext.getDatabasePath(pending).renameTo(archive)) {
+            mContext.deleteDatabase(pending);
+        } else {
+            Log.w(LOG_TAG, "Could not rename " + pending + ", trying again on the next start");
+        }
+    }
+
+    /**
+     * The live courses of several terms, TERM_CURRENT standing for the current courses, with a
+     * COLUMN_TERM column naming each row's term. Selection and sort order apply across terms.
+     */
+    Cursor queryCourses(String[] terms, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        if (terms.length > MAX_TERMS) {
+            throw new IllegalArgumentException("Cannot read more than " + MAX_TERMS + " terms at once");
+        }
+        StringBuilder union = new StringBuilder("(");
+        String[] paths = new String[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            // opening an archive first brings its schema up to date, it may not have been read since an upgrade
+            paths[i] = CourseContract.TERM_CURRENT.equals(terms[i]) ? currentPath() : open(terms[i]).getPath();
+            if (i > 0) {
+                union.append(" UNION ALL ");
+            }
+            union.append("SELECT ").append(DatabaseUtils.sqlEscapeString(terms[i])).append(" AS ")
+                    .append(CourseEntry.COLUMN_TERM).append(",* FROM (")
+                    .append(CourseDbHelper.selectCourseRows("t" + i + "."))
+                    .append(" WHERE ").append(CourseDbHelper.LIVE_SELECTION).append(")");
+        }
+        union.append(")");
+
+        final SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            for (int i = 0; i < paths.length; i++) {
+                db.execSQL("ATTACH DATABASE ? AS t" + i, new Object[]{paths[i]});
+            }
+            Cursor cursor = db.rawQuery(SQLiteQueryBuilder.buildQueryString(false, union.toString(), projection,
+                    selection, null, null, sortOrder, null), selectionArgs);
+            return new CursorWrapper(cursor) {
+                @Override
+                public void close() {
+                    super.close();
+                    db.close();//detaches every term with it
+                }
+            };
+        } catch (RuntimeException e) {
+            db.close();
+            throw e;
+        }
+    }
+
+    private CourseDbHelper helper(String term) {
+        checkName(term);
+        recover();
+        synchronized (mHelpers) {
+            CourseDbHelper helper = mHelpers.get(term);
+            if (helper == null) {
+                if (!exists(term)) {//opening it would create an empty one
+                    throw new IllegalArgumentException("No archived term " + term);
+                }
+                helper = new CourseDbHelper(mContext, term);
+                mHelpers.put(term, helper);
+            }
+            return helper;
+        }
+    }
+
+    private boolean exists(String term) {
+        return mContext.getDatabasePath(CourseDbHelper.ARCHIVE_PREFIX + term + CourseDbHelper.ARCHIVE_SUFFIX).exists();
+    }
+
+    private String currentPath() {
+        return mContext.getDatabasePath(CourseDbHelper.DATABASE_NAME).getPath();
+    }
+
+    private static void checkName(String term) {
+        if (term == null || !TERM_NAME.matcher(term).matches() || CourseContract.TERM_CURRENT.equals(term)) {
+            throw new IllegalArgumentException("Invalid term name " + term);
+        }
+    }
+}
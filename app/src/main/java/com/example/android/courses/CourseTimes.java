@@ -0,0 +1,115 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the free-form day and time a user types into the editor into the normalized
+ * day-of-week and minutes-since-midnight columns the provider indexes.
+ */
+final class CourseTimes {
+    private CourseTimes() {}
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    /** day name prefixes, index + 1 is the day of week (1 = Monday) */
+    private static final String[] DAY_PREFIXES = {"mo", "tu", "we", "th", "fr", "sa", "su"};
+
+    /** one clock time: 10, 10:30, 10.30, 10h30, 10am, 10:30 p.m. */
+    private static final String CLOCK = "(\\d{1,2})(?:[:.h](\\d{2}))?\\s*([ap])?\\.?\\s*(?:m\\.?)?";
+    /** a start time with an optional end time after a dash or "to" */
+    private static final Pattern TIME_RANGE = Pattern.compile(
+            "^\\s*" + CLOCK + "(?:\\s*(?:-|\\u2013|to)\\s*" + CLOCK + ")?\\s*$", Pattern.CASE_INSENSITIVE);
+
+    /** Returns 1 (Monday) to 7 (Sunday), or null if the text isn't a day of the week */
+    static Integer parseDayOfWeek(String day) {
+        if (day == null) {
+            return null;
+        }
+        String text = day.trim().toLowerCase(Locale.US);
+        if (text.length() == 1 && text.charAt(0) >= '1' && text.charAt(0) <= '7') {
+            return text.charAt(0) - '0';
+        }
+        if (text.length() < 2) {
+            return null;
+        }
+        for (int i = 0; i < DAY_PREFIXES.length; i++) {
+            if (text.startsWith(DAY_PREFIXES[i])) {
+                return i + 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns {start, end} in minutes since midnight, or null if the text isn't a time.
+     * A time without an end is assumed to last {@link CourseEntry#DEFAULT_COURSE_MINUTES}.
+     */
+    static int[] parseTimeRange(String time) {
+        if (time == null) {
+            return null;
+        }
+        Matcher matcher = TIME_RANGE.matcher(time);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int start = toMinutes(matcher.group(1), matcher.group(2), matcher.group(3));
+        if (start < 0) {
+            return null;
+        }
+        int end;
+        if (matcher.group(4) == null) {
+            end = Math.min(start + CourseEntry.DEFAULT_COURSE_MINUTES, MINUTES_PER_DAY);
+        } else {
+            // "1pm-2" means 2pm, so an end without am/pm borrows the start's half of the day
+            String endHalf = matcher.group(6) != null ? matcher.group(6) : matcher.group(3);
+            end = toMinutes(matcher.group(4), matcher.group(5), endHalf);
+            if (end >= 0 && end <= start && matcher.group(6) == null && end + 12 * 60 > start) {
+                end += 12 * 60;
+            }
+            if (end <= start || end > MINUTES_PER_DAY) {
+                return null;
+            }
+        }
+        return new int[]{start, end};
+    }
+
+    /** minutes since midnight for hour:minute with an optional a/p suffix, -1 if out of range */
+    private static int toMinutes(String hourText, String minuteText, String half) {
+        int hour = Integer.parseInt(hourText);
+        int minute = minuteText == null ? 0 : Integer.parseInt(minuteText);
+        if (minute > 59) {
+            return -1;
+        }
+        if (half != null) {
+            if (hour < 1 || hour > 12) {
+                return -1;
+            }
+            hour = hour % 12 + (Character.toLowerCase(half.charAt(0)) == 'p' ? 12 : 0);
+        } else if (hour > 23) {
+            return -1;
+        }
+        return hour * 60 + minute;
+    }
+
+    /**
+     * Fill in the normalized columns for whichever of day and time are present in values.
+     * Unparseable text stores nulls so a stale value never survives an edit.
+     */
+    static void putNormalizedColumns(ContentValues values) {
+        if (values.containsKey(CourseEntry.COLUMN_COURSE_DAY)) {
+            values.put(CourseEntry.COLUMN_COURSE_DAY_OF_WEEK,
+                    parseDayOfWeek(values.getAsString(CourseEntry.COLUMN_COURSE_DAY)));
+        }
+        if (values.containsKey(CourseEntry.COLUMN_COURSE_TIME)) {
+            int[] range = parseTimeRange(values.getAsString(CourseEntry.COLUMN_COURSE_TIME));
+            values.put(CourseEntry.COLUMN_COURSE_START_MINUTE, range == null ? null : range[0]);
+            values.put(CourseEntry.COLUMN_COURSE_END_MINUTE, range == null ? null : range[1]);
+        }
+    }
+}
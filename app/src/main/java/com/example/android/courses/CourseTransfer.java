@@ -0,0 +1,261 @@
+package com.example.android.courses;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV and JSON formats for importing and exporting courses. Both directions stream: a reader
+ * hands back one course at a time and a writer writes each row as the cursor reaches it, so
+ * memory use doesn't grow with the number of courses.
+ *
+ * CSV has a header row naming the columns, fields are quoted when they hold commas, quotes or
+ * line breaks. JSON is an array of objects. Both export _id and the columns the editor saves;
+ * an import takes the editor's columns and ignores anything else, blank for any that are missing.
+ */
+final class CourseTransfer {
+    private CourseTransfer() {}
+
+    /** Columns of an export, in order */
+    static final String[] EXPORT_COLUMNS = {
+            CourseEntry._ID,
+            CourseEntry.COLUMN_COURSE_NAME,
+            CourseEntry.COLUMN_COURSE_ROOM,
+            CourseEntry.COLUMN_COURSE_TEACHER,
+            CourseEntry.COLUMN_COURSE_TIME,
+            CourseEntry.COLUMN_COURSE_DAY};
+
+    /** longest CSV field accepted, so one bad line can't take all the memory */
+    private static final int MAX_FIELD_CHARS = 64 * 1024;
+
+    /** One course at a time from an import */
+    interface CourseReader {
+        /** the next course's editor columns, or null at the end */
+        ContentValues next() throws IOException;
+    }
+
+    static CourseReader newReader(String mimeType, InputStream in) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        return CourseEntry.MIME_TYPE_JSON.equals(mimeType) ? new JsonCourseReader(reader) : new CsvCourseReader(reader);
+    }
+
+    /** Write every row of a cursor over EXPORT_COLUMNS */
+    static void write(String mimeType, Cursor cursor, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        if (CourseEntry.MIME_TYPE_JSON.equals(mimeType)) {
+            writeJson(cursor, writer);
+        } else {
+            writeCsv(cursor, writer);
+        }
+    }
+
+    private static void writeCsv(Cursor cursor, Writer writer) throws IOException {
+        for (int i = 0; i < EXPORT_COLUMNS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(EXPORT_COLUMNS[i]);
+        }
+        writer.write("\r\n");
+        while (cursor.moveToNext()) {
+            writer.write(String.valueOf(cursor.getLong(0)));
+            for (int i = 1; i < EXPORT_COLUMNS.length; i++) {
+                writer.write(',');
+                writeCsvField(writer, cursor.getString(i));
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static void writeJson(Cursor cursor, Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        while (cursor.moveToNext()) {
+            json.beginObject();
+            json.name(EXPORT_COLUMNS[0]).value(cursor.getLong(0));
+            for (int i = 1; i < EXPORT_COLUMNS.length; i++) {
+                json.name(EXPORT_COLUMNS[i]).value(cursor.getString(i));
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    /** position of column among the editor's columns, -1 if an import ignores it */
+    private static int courseColumn(String column) {
+        for (int i = 0; i < CourseStatements.COURSE_COLUMNS.length; i++) {
+            if (CourseStatements.COURSE_COLUMNS[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** a course with every editor column blank, for the reader to fill in */
+    private static ContentValues newCourse() {
+        ContentValues values = new ContentValues(CourseStatements.COURSE_COLUMNS.length);
+        for (String column : CourseStatements.COURSE_COLUMNS) {
+            values.put(column, "");
+        }
+        return values;
+    }
+
+    private static final class CsvCourseReader implements CourseReader {
+        private final Reader mIn;
+        private final List<String> mFields = new ArrayList<>();
+        private final StringBuilder mField = new StringBuilder();
+        /** for each CSV column, the editor column it fills or -1 */
+        private int[] mColumns;
+        private int mLine;
+
+        CsvCourseReader(Reader in) {
+            mIn = in;
+        }
+
+        @Override
+        public ContentValues next() throws IOException {
+            if (mColumns == null) {
+                if (!readRecord()) {
+                    return null;//empty file
+                }
+                mColumns = new int[mFields.size()];
+                boolean hasName = false;
+                for (int i = 0; i < mColumns.length; i++) {
+                    mColumns[i] = courseColumn(mFields.get(i).trim());
+                    hasName |= CourseEntry.COLUMN_COURSE_NAME.equals(mFields.get(i).trim());
+                }
+                if (!hasName) {
+                    throw new IOException("CSV header has no " + CourseEntry.COLUMN_COURSE_NAME + " column");
+                }
+            }
+            do {
+                if (!readRecord()) {
+                    return null;
+                }
+            } while (mFields.size() == 1 && mFields.get(0).isEmpty());//blank line
+
+            ContentValues values = newCourse();
+            for (int i = 0; i < mFields.size() && i < mColumns.length; i++) {
+                if (mColumns[i] >= 0) {
+                    values.put(CourseStatements.COURSE_COLUMNS[mColumns[i]], mFields.get(i));
+                }
+            }
+            return values;
+        }
+
+        /** read the next record into mFields, false at the end of the input */
+        private boolean readRecord() throws IOException {
+            mFields.clear();
+            mField.setLength(0);
+            int c = mIn.read();
+            if (c == -1) {
+                return false;
+            }
+            mLine++;
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quote in CSV record " + mLine);
+                    }
+                    if (c == '"') {
+                        c = mIn.read();
+                        if (c != '"') {//closing quote, look at what follows it normally
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    append(c);
+                } else if (c == '"' && mField.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    mFields.add(mField.toString());
+                    mField.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    mFields.add(mField.toString());
+                    return true;
+                } else if (c != '\r') {
+                    append(c);
+                }
+                c = mIn.read();
+            }
+        }
+
+        private void append(int c) throws IOException {
+            if (mField.length() == MAX_FIELD_CHARS) {
+                throw new IOException("CSV field too long in record " + mLine);
+            }
+            mField.append((char) c);
+        }
+    }
+
+    private static final class JsonCourseReader implements CourseReader {
+        private final JsonReader mJson;
+        private boolean mStarted;
+
+        JsonCourseReader(Reader in) {
+            mJson = new JsonReader(in);
+        }
+
+        @Override
+        public ContentValues next() throws IOException {
+            if (!mStarted) {
+                mJson.beginArray();
+                mStarted = true;
+            }
+            if (!mJson.hasNext()) {
+                return null;
+            }
+            ContentValues values = newCourse();
+            mJson.beginObject();
+            while (mJson.hasNext()) {
+                int column = courseColumn(mJson.nextName());
+                if (column < 0) {
+                    mJson.skipValue();
+                } else if (mJson.peek() == JsonToken.NULL) {
+                    mJson.nextNull();
+                } else {
+                    values.put(CourseStatements.COURSE_COLUMNS[column], mJson.nextString());
+                }
+            }
+            mJson.endObject();
+            return values;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.android.courses;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.RemoteException;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.example.android.courses.CourseContract.CourseEntry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background write queue for the screens, so saving or deleting never waits on SQLite on the
+ * main thread. Writes are committed on one worker thread, everything queued within a short
+ * window going into a single applyBatch() transaction. An update to a course whose previous
+ * update is still waiting is merged into it. Results come back on the main thread.
+ */
+public final class CourseWriter {
+
+    /** Tag for the log messages */
+    private static final String LOG_TAG = CourseWriter.class.getSimpleName();
+
+    /**
+     * The outcome of a queued write, called on the main thread. Queued writes outlive the screen
+     * that queued them, so a callback mustn't hold on to an activity.
+     */
+    public interface Callback {
+        /**
+         * @param uri the new course for an insert, otherwise the uri that was written
+         * @param rows rows inserted, updated or deleted
+         * @param error why the write failed, e.g. a double booking, or null if it didn't
+         */
+        void onWriteComplete(Uri uri, int rows, String error);
+    }
+
+    /** How long a write waits for others to share its transaction */
+    private static final long BATCH_WINDOW_MS = 100;
+
+    private static final int INSERT = 0;
+    private static final int UPDATE = 1;
+    private static final int DELETE = 2;
+
+    private static CourseWriter sInstance;
+
+    private final ContentResolver mResolver;
+    private final Handler mWorker;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /** writes waiting for the next batch, in the order they were queued */
+    private final List<Write> mPending = new ArrayList<>();
+    /** waiting updates by course id that no later waiting write touches, a new update can merge into these */
+    private final Map<Long, Write> mMergeableUpdates = new HashMap<>();
+
+    public static synchronized CourseWriter get(Context context) {
+        if (sInstance == null) {
+            sInstance = new CourseWriter(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private CourseWriter(Context context) {
+        mResolver = context.getContentResolver();
+        HandlerThread thread = new HandlerThread(LOG_TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mWorker = new Handler(thread.getLooper());
+    }
+
+    /** Add a course, callback gets its uri */
+    public void insert(ContentValues values, Callback callback) {
+        enqueue(new Write(INSERT, CourseEntry.CONTENT_URI, new ContentValues(values), callback));
+    }
+
+    /** Update a course, or every course for the courses uri */
+    public void update(Uri uri, ContentValues values, Callback callback) {
+        long id = courseId(uri);
+        synchronized (mPending) {
+            Write waiting = mMergeableUpdates.get(id);
+            if (waiting != null) {//still queued, save both edits in one go
+                waiting.mValues.putAll(values);
+                waiting.mCallbacks.add(callback);
+                return;
+            }
+            Write write = new Write(UPDATE, uri, new ContentValues(values), callback);
+            enqueue(write);
+            if (id != -1) {
+                mMergeableUpdates.put(id, write);
+            }
+        }
+    }
+
+    /** Delete a course, or every course for the courses uri */
+    public void delete(Uri uri, Callback callback) {
+        enqueue(new Write(DELETE, uri, null, callback));
+    }
+
+    private void enqueue(Write write) {
+        synchronized (mPending) {
+            mPending.add(write);
+            long id = courseId(write.mUri);
+            if (id != -1) {
+                mMergeableUpdates.remove(id);
+            } else if (write.mType != INSERT) {
+                mMergeableUpdates.clear();//touches every course
+            }
+            if (mPending.size() == 1) {
+                mWorker.postDelayed(mFlush, BATCH_WINDOW_MS);
+            }
+        }
+    }
+
+    /** the id of a single course uri, -1 for anything else */
+    private static long courseId(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.size() == 2 && CourseContract.PATH_COURSES.equals(segments.get(0))
+                && TextUtils.isDigitsOnly(segments.get(1))) {
+            return ContentUris.parseId(uri);
+        }
+        return -1;
+    }
+
+    /** commit everything waiting in one batch, on the worker thread */
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            List<Write> writes;
+            synchronized (mPending) {
+                writes = new ArrayList<>(mPending);
+                mPending.clear();
+                mMergeableUpdates.clear();
+            }
+
+            ArrayList<ContentProviderOperation> operations = new ArrayList<>(writes.size());
+            for (Write write : writes) {
+                operations.add(write.toOperation());
+            }
+            ContentProviderResult[] results;
+            try {
+                results = mResolver.applyBatch(CourseContract.CONTENT_AUTHORITY, operations);
+            } catch (RemoteException | OperationApplicationException | RuntimeException e) {
+                // one bad write (e.g. a double booking) rolls back the whole batch, redo them one by one so only it fails
+                Log.w(LOG_TAG, "Batch of " + writes.size() + " writes failed, applying them one at a time", e);
+                for (Write write : writes) {
+                    applyOne(write);
+                }
+                return;
+            }
+            for (int i = 0; i < writes.size(); i++) {
+                Write write = writes.get(i);
+                if (results[i].uri != null) {
+                    deliver(write, results[i].uri, 1, null);
+                } else {
+                    deliver(write, write.mUri, results[i].count == null ? 0 : results[i].count, null);
+                }
+            }
+        }
+    };
+
+    private void applyOne(Write write) {
+        try {
+            switch (write.mType) {
+                case INSERT:
+                    Uri newUri = mResolver.insert(write.mUri, write.mValues);
+                    deliver(write, newUri, newUri == null ? 0 : 1, null);
+                    break;
+                case UPDATE:
+                    deliver(write, write.mUri, mResolver.update(write.mUri, write.mValues, null, null), null);
+                    break;
+                default:
+                    deliver(write, write.mUri, mResolver.delete(write.mUri, null, null), null);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            deliver(write, write.mUri, 0, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void deliver(final Write write, final Uri uri, final int rows, final String error) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Callback callback : write.mCallbacks) {
+                    if (callback != null) {
+                        callback.onWriteComplete(uri, rows, error);
+                    }
+                }
+            }
+        });
+    }
+
+    /** One queued insert, update or delete and whoever is waiting for it */
+    private static final class Write {
+        final int mType;
+        final Uri mUri;
+        final ContentValues mValues;
+        final List<Callback> mCallbacks = new ArrayList<>(1);
+
+        Write(int type, Uri uri, ContentValues values, Callback callback) {
+            mType = type;
+            mUri = uri;
+            mValues = values;
+            mCallbacks.add(callback);
+        }
+
+        ContentProviderOperation toOperation() {
+            switch (mType) {
+                case INSERT:
+                    return ContentProviderOperation.newInsert(mUri).withValues(mValues).build();
+                case UPDATE:
+                    return ContentProviderOperation.newUpdate(mUri).withValues(mValues).build();
+                default:
+                    return ContentProviderOperation.newDelete(mUri).build();
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.android.courses;
 
 import android.app.AlertDialog;
+import android.app.Fragment;
 import android.app.LoaderManager;
 import android.content.ContentValues;
+import android.content.Context;
 import android.content.CursorLoader;
 import android.content.DialogInterface;
 import android.content.Intent;
@@ -84,7 +86,12 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
     }
 
     // user input from editor, give to CourseProvider to save course into database
+    // the save runs in the background and the editor closes once it went through
     private void saveCourse(){
+        getFragmentManager().executePendingTransactions();//a finished save removes its fragment
+        if (getFragmentManager().findFragmentByTag(SaveFragment.TAG) != null) {//already on its way
+            return;
+        }
         String nameString=mNameEditText.getText().toString().trim();
         String roomString=mRoomEditText.getText().toString().trim();
         String teacherString=mTeacherEditText.getText().toString().trim();
@@ -95,6 +102,7 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         if (mCurrentCourseUri == null &&
                 TextUtils.isEmpty(nameString) && TextUtils.isEmpty(roomString) &&
                 TextUtils.isEmpty(teacherString) && TextUtils.isEmpty(timeString) && TextUtils.isEmpty(dayString)){
+            finish();
             return;
         }
 
@@ -107,26 +115,88 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         values.put(CourseEntry.COLUMN_COURSE_DAY, dayString);
 
         // Determine if this is a new or existing course by checking if mCurrentPetUri is null or not
-        if (mCurrentCourseUri == null) {
+        boolean inserting = mCurrentCourseUri == null;
+        SaveFragment save = SaveFragment.newInstance(inserting);
+        getFragmentManager().beginTransaction().add(save, SaveFragment.TAG).commit();
+        if (inserting) {
             // new course, insert into provider
-            Uri newUri = getContentResolver().insert(CourseEntry.CONTENT_URI, values);
-
-            if (newUri == null) {
-                Toast.makeText(this, "Insert course failed", Toast.LENGTH_SHORT).show();
-            }
-            else {
-                Toast.makeText(this, "Insert course successful", Toast.LENGTH_SHORT).show();
-            }
+            CourseWriter.get(this).insert(values, save);
         }
         else {
             // Otherwise existing course, update with mCurrentPetUri and pass in new ContentValues.
-            int rowsAffected = getContentResolver().update(mCurrentCourseUri, values, null, null);
+            CourseWriter.get(this).update(mCurrentCourseUri, values, save);
+        }
+    }
+
+    /** how the queued save went, finishes the editor unless the course couldn't be saved */
+    private void onSaveComplete(boolean inserting, int rows, String error) {
+        if (error != null) {
+            // e.g. room or teacher already booked at that time, keep editing
+            Toast.makeText(this, error, Toast.LENGTH_LONG).show();
+            return;
+        }
+        if (rows == 0) {
+            Toast.makeText(this, inserting ? "Insert course failed" : "Update course failed",
+                    Toast.LENGTH_SHORT).show();
+        } else {
+            Toast.makeText(this, inserting ? "Insert course successful" : "Update course successful",
+                    Toast.LENGTH_SHORT).show();
+        }
+        finish();//exit activity
+    }
+
+    /**
+     * Waits for a queued save on the editor's behalf. It's retained, so a save that finishes while
+     * the editor is being recreated, e.g. after a rotation, is handed to the new editor once it's
+     * showing, and one that finishes after the editor was closed is dropped.
+     */
+    public static class SaveFragment extends Fragment implements CourseWriter.Callback {
+        static final String TAG = "save";
+        private static final String ARG_INSERTING = "inserting";
+
+        private boolean mComplete;
+        private int mRows;
+        private String mError;
+        /** restored after the process died, the save went with the queue and will never report */
+        private boolean mLost;
+
+        static SaveFragment newInstance(boolean inserting) {
+            SaveFragment save = new SaveFragment();
+            Bundle args = new Bundle();
+            args.putBoolean(ARG_INSERTING, inserting);
+            save.setArguments(args);
+            return save;
+        }
 
-            if (rowsAffected == 0) {
-                Toast.makeText(this, "Update course failed", Toast.LENGTH_SHORT).show();
+        @Override
+        public void onCreate(Bundle savedInstanceState) {
+            super.onCreate(savedInstanceState);
+            setRetainInstance(true);
+            mLost = savedInstanceState != null;//a retained fragment is only created again by a new process
+        }
+
+        @Override
+        public void onWriteComplete(Uri uri, int rows, String error) {
+            mComplete = true;
+            mRows = rows;
+            mError = error;
+            if (isResumed()) {
+                deliver();
             }
-            else {
-                Toast.makeText(this, "Update course successful", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onResume() {
+            super.onResume();
+            if (mComplete || mLost) {
+                deliver();
+            }
+        }
+
+        private void deliver() {
+            getFragmentManager().beginTransaction().remove(this).commit();//the editor can save again
+            if (mComplete) {
+                ((EditorActivity) getActivity()).onSaveComplete(getArguments().getBoolean(ARG_INSERTING), mRows, mError);
             }
         }
     }
@@ -157,8 +227,7 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
         switch (item.getItemId()) {
             // Respond to a click on the "Save" menu option
             case R.id.action_save:
-                saveCourse();//save new course to database
-                finish();//exit activity
+                saveCourse();//save new course to database, exits once it's saved
                 return true;
             // Respond to a click on the "Delete" menu option
             case R.id.action_delete:
@@ -310,17 +379,29 @@ public class EditorActivity extends AppCompatActivity implements LoaderManager.L
     private void deleteCourse() {
         // Only perform the delete if this is an existing course.
         if (mCurrentCourseUri != null) {
-            // Call the ContentResolver to delete the course at the given content URI.
-            int rowsDeleted = getContentResolver().delete(mCurrentCourseUri, null, null);
+            // Delete the course at the given content URI in the background, the result outlives this screen
+            CourseWriter.get(this).delete(mCurrentCourseUri, new DeleteCallback(getApplicationContext()));
+        }
+        // Close the activity
+        finish();
+    }
 
-            if (rowsDeleted == 0) {
-                Toast.makeText(this, "Delete course failed", Toast.LENGTH_SHORT).show();
+    /** reports the delete once the editor is gone, so it holds only the application context */
+    private static class DeleteCallback implements CourseWriter.Callback {
+        private final Context mAppContext;
+
+        DeleteCallback(Context appContext) {
+            mAppContext = appContext;
+        }
+
+        @Override
+        public void onWriteComplete(Uri uri, int rows, String error) {
+            if (rows == 0) {
+                Toast.makeText(mAppContext, "Delete course failed", Toast.LENGTH_SHORT).show();
             }
             else {
-                Toast.makeText(this, "Delete course successful", Toast.LENGTH_SHORT).show();
+                Toast.makeText(mAppContext, "Delete course successful", Toast.LENGTH_SHORT).show();
             }
         }
-        // Close the activity
-        finish();
     }
 }
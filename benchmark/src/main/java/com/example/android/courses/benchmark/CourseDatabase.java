@@ -0,0 +1,245 @@
+package com.example.android.courses.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A schedule.db stand-in on the JVM: SQLite through JDBC with the app's schema, read from
+ * schema.sql, running the statements CourseStatements and CourseProvider run for each operation.
+ * Room and teacher names are interned into their own tables on the way in as the provider does,
+ * so every write pays for the same indexes and triggers it pays for on a device.
+ *
+ * Course n of a benchmark is always the same course: one of a few subjects, numbered so the
+ * name, day and time key stays unique, in one of courses / 20 rooms with one of courses / 10
+ * teachers, Monday to Friday in one of eight slots.
+ */
+final class CourseDatabase implements Closeable {
+
+    private static final String SCHEMA = "schema.sql";
+    /** What the provider runs after hiding the rows of a soft delete, see readStatements */
+    private static final String SOFT_DELETE = "soft_delete.sql";
+
+    private static final String[] SUBJECTS = {"Algebra", "Biology", "Chemistry", "Drama", "Economics",
+            "French", "Geography", "History", "Latin", "Music", "Physics", "Statistics"};
+    private static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday"};
+    /** time slots as the editor saves them, with the start and end minutes CourseTimes parses out of them */
+    private static final String[] SLOTS = {"8:00-9:30", "9:45-11:15", "11:30-13:00", "13:30-15:00",
+            "15:15-16:45", "17:00-18:30", "18:45-20:15", "20:30-22:00"};
+    private static final int[][] SLOT_MINUTES = {{480, 570}, {585, 675}, {690, 780}, {810, 900},
+            {915, 1005}, {1020, 1110}, {1125, 1215}, {1230, 1320}};
+
+    private static final String INSERT = "INSERT INTO course_rows (name,room_id,teacher_id,time,day," +
+            "day_of_week,start_minute,end_minute) VALUES (?,?,?,?,?,?,?,?)";
+    private static final String UPDATE_BY_ID = "UPDATE course_rows SET name=?,room_id=?,teacher_id=?,time=?,day=?," +
+            "day_of_week=?,start_minute=?,end_minute=? WHERE _id=? AND deleted_generation IS NULL";
+    private static final String DELETE_BY_ID = "DELETE FROM course_rows WHERE _id=? AND deleted_generation IS NULL";
+
+    private final File mFile;
+    private final Connection mConnection;
+    private final int mRooms;
+    private final int mTeachers;
+    private final PreparedStatement mFindRoom;
+    private final PreparedStatement mAddRoom;
+    private final PreparedStatement mFindTeacher;
+    private final PreparedStatement mAddTeacher;
+    private final PreparedStatement mInsert;
+    private final PreparedStatement mUpdateById;
+    private final PreparedStatement mDeleteById;
+    private final String[] mSoftDelete;
+
+    /**
+     * A new, empty database file for a table of about courses courses, set up the way
+     * CourseDbHelper sets up schedule.db: write-ahead log, synchronous=NORMAL.
+     */
+    CourseDatabase(int courses) throws SQLException, IOException {
+        mFile = File.createTempFile("schedule", ".db");
+        mConnection = DriverManager.getConnection("jdbc:sqlite:" + mFile.getPath());
+        mRooms = Math.max(1, courses / 20);
+        mTeachers = Math.max(1, courses / 10);
+        execute("PRAGMA journal_mode=WAL");
+        execute("PRAGMA synchronous=NORMAL");
+        for (String statement : readStatements(SCHEMA)) {
+            execute(statement);
+        }
+        mSoftDelete = readStatements(SOFT_DELETE);
+        mFindRoom = mConnection.prepareStatement("SELECT _id FROM rooms WHERE name=?");
+        mAddRoom = mConnection.prepareStatement("INSERT INTO rooms (name) VALUES (?)");
+        mFindTeacher = mConnection.prepareStatement("SELECT _id FROM teachers WHERE name=?");
+        mAddTeacher = mConnection.prepareStatement("INSERT INTO teachers (name) VALUES (?)");
+        mInsert = mConnection.prepareStatement(INSERT);
+        mUpdateById = mConnection.prepareStatement(UPDATE_BY_ID);
+        mDeleteById = mConnection.prepareStatement(DELETE_BY_ID);
+    }
+
+    /** The statements of a resource, each ended by a line holding only ";", without comment lines */
+    private static String[] readStatements(String resource) throws IOException {
+        InputStream in = CourseDatabase.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("No " + resource + " next to " + CourseDatabase.class.getName());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : bytes.toString("UTF-8").split("\n")) {
+            if (!line.startsWith("--")) {
+                text.append(line).append('\n');
+            }
+        }
+        return text.toString().split("\n;\n");
+    }
+
+    Connection connection() {
+        return mConnection;
+    }
+
+    void execute(String sql) throws SQLException {
+        Statement statement = mConnection.createStatement();
+        try {
+            statement.execute(sql);
+        } finally {
+            statement.close();
+        }
+    }
+
+    /** Start a write transaction the way beginTransactionNonExclusive() does */
+    void begin() throws SQLException {
+        execute("BEGIN IMMEDIATE");
+    }
+
+    void commit() throws SQLException {
+        execute("COMMIT");
+    }
+
+    /** Add courses first .. first + count - 1 in one transaction, as bulkInsert() does */
+    void insertAll(int first, int count) throws SQLException {
+        begin();
+        try {
+            for (int n = first; n < first + count; n++) {
+                insert(n);
+            }
+            commit();
+        } catch (SQLException | RuntimeException e) {
+            execute("ROLLBACK");
+            throw e;
+        }
+    }
+
+    /** Add course n in the current transaction, or in one of its own outside of one, returns its id */
+    long insert(int n) throws SQLException {
+        bindCourse(mInsert, n, "");
+        mInsert.executeUpdate();
+        return lastInsertId();
+    }
+
+    /** Save every column of the course with this id as course n, the editor's save, name ending in suffix */
+    int updateById(long id, int n, String suffix) throws SQLException {
+        bindCourse(mUpdateById, n, suffix);
+        mUpdateById.setLong(9, id);
+        return mUpdateById.executeUpdate();
+    }
+
+    int deleteById(long id) throws SQLException {
+        mDeleteById.setLong(1, id);
+        return mDeleteById.executeUpdate();
+    }
+
+    /**
+     * Hide every live course under a new deletion generation in the current transaction, as the
+     * provider's soft delete does, returns how many.
+     */
+    int softDeleteAll() throws SQLException {
+        execute("INSERT INTO course_deletions (deleted_at) VALUES (" + System.currentTimeMillis() + ")");
+        long generation = lastInsertId();
+        Statement hide = mConnection.createStatement();
+        int rows;
+        try {
+            rows = hide.executeUpdate("UPDATE course_rows SET deleted_generation=" + generation +
+                    " WHERE deleted_generation IS NULL");
+        } finally {
+            hide.close();
+        }
+        for (String sql : mSoftDelete) {
+            PreparedStatement statement = mConnection.prepareStatement(sql);
+            try {
+                statement.setLong(1, generation);
+                statement.executeUpdate();
+            } finally {
+                statement.close();
+            }
+        }
+        return rows;
+    }
+
+    private void bindCourse(PreparedStatement statement, int n, String suffix) throws SQLException {
+        int slot = (n / DAYS.length) % SLOTS.length;
+        statement.setString(1, SUBJECTS[n % SUBJECTS.length] + " " + (n / SUBJECTS.length + 1) + suffix);
+        statement.setLong(2, nameId(mFindRoom, mAddRoom, "Room " + (n % mRooms)));
+        statement.setLong(3, nameId(mFindTeacher, mAddTeacher, "Teacher " + (n % mTeachers)));
+        statement.setString(4, SLOTS[slot]);
+        statement.setString(5, DAYS[n % DAYS.length]);
+        statement.setInt(6, n % DAYS.length + 1);
+        statement.setInt(7, SLOT_MINUTES[slot][0]);
+        statement.setInt(8, SLOT_MINUTES[slot][1]);
+    }
+
+    /** id of a room or teacher name, adding it if it's new */
+    private long nameId(PreparedStatement find, PreparedStatement add, String name) throws SQLException {
+        find.setString(1, name);
+        ResultSet found = find.executeQuery();
+        try {
+            if (found.next()) {
+                return found.getLong(1);
+            }
+        } finally {
+            found.close();
+        }
+        add.setString(1, name);
+        add.executeUpdate();
+        return lastInsertId();
+    }
+
+    long lastInsertId() throws SQLException {
+        Statement statement = mConnection.createStatement();
+        try {
+            ResultSet id = statement.executeQuery("SELECT last_insert_rowid()");
+            try {
+                id.next();
+                return id.getLong(1);
+            } finally {
+                id.close();
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            mConnection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            for (String suffix : new String[]{"", "-wal", "-shm"}) {
+                new File(mFile.getPath() + suffix).delete();
+            }
+        }
+    }
+}
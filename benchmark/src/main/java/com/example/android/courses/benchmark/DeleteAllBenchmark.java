@@ -0,0 +1,90 @@
+package com.example.android.courses.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting every course of a table of courses courses, refilled before each delete. Scores are
+ * milliseconds per delete. deleteAll is CourseProvider's delete of the courses uri, softDeleteAll
+ * the catalog's undoable delete that hides the courses under a new deletion generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeleteAllBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int courses;
+
+    private CourseDatabase mDatabase;
+
+    @Setup(Level.Invocation)
+    public void fillTable() throws SQLException, IOException {
+        mDatabase = new CourseDatabase(courses);
+        mDatabase.insertAll(0, courses);
+    }
+
+    @TearDown(Level.Invocation)
+    public void dropTable() throws IOException {
+        mDatabase.close();
+    }
+
+    /** The ids the provider reads for its change notification, then the delete, in one transaction */
+    @Benchmark
+    public void deleteAll(Blackhole blackhole) throws SQLException {
+        mDatabase.begin();
+        blackhole.consume(readLiveIds());
+        Statement delete = mDatabase.connection().createStatement();
+        try {
+            blackhole.consume(delete.executeUpdate("DELETE FROM course_rows WHERE deleted_generation IS NULL"));
+            mDatabase.commit();
+        } finally {
+            delete.close();
+        }
+    }
+
+    @Benchmark
+    public void softDeleteAll(Blackhole blackhole) throws SQLException {
+        mDatabase.begin();
+        blackhole.consume(readLiveIds());
+        blackhole.consume(mDatabase.softDeleteAll());
+        mDatabase.commit();
+    }
+
+    /** sum of the live ids, for the blackhole so reading them can't be optimized away */
+    private long readLiveIds() throws SQLException {
+        Statement query = mDatabase.connection().createStatement();
+        try {
+            ResultSet ids = query.executeQuery("SELECT _id FROM courses");
+            long sum = 0;
+            while (ids.next()) {
+                sum += ids.getLong(1);
+            }
+            ids.close();
+            return sum;
+        } finally {
+            query.close();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.courses.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and in-place updates of a table that holds courses courses throughout: query-all,
+ * query-by-id, the editor's update, full text search against the LIKE scan it replaced, and
+ * the indexed lookup a room double booking check costs in SQL. Scores are operations a second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int courses;
+
+    private CourseDatabase mDatabase;
+    private PreparedStatement mQueryAll;
+    private PreparedStatement mQueryById;
+    private PreparedStatement mSearch;
+    private PreparedStatement mSearchLike;
+    private PreparedStatement mRoomConflicts;
+    private final Random mRandom = new Random(42);
+    private int mUpdates;
+
+    @Setup(Level.Trial)
+    public void createTable() throws SQLException, IOException {
+        mDatabase = new CourseDatabase(courses);
+        mDatabase.insertAll(0, courses);
+        mQueryAll = mDatabase.connection().prepareStatement(
+                "SELECT _id,name,room,teacher,time,day FROM courses");
+        mQueryById = mDatabase.connection().prepareStatement(
+                "SELECT _id,name,room,teacher,time,day FROM courses WHERE _id=?");
+        // CourseProvider's search uri: prefix match, ranked by how many terms hit
+        mSearch = mDatabase.connection().prepareStatement(
+                "SELECT courses._id,name,room,teacher FROM courses JOIN (SELECT docid," +
+                        " (length(offsets(courses_fts)) - length(replace(offsets(courses_fts), ' ', '')) + 1) / 4 AS hits" +
+                        " FROM courses_fts WHERE courses_fts MATCH ?) AS matches ON courses._id=matches.docid" +
+                        " ORDER BY matches.hits DESC, name");
+        mSearchLike = mDatabase.connection().prepareStatement(
+                "SELECT _id,name,room,teacher FROM courses WHERE name LIKE ? OR teacher LIKE ? OR room LIKE ?" +
+                        " ORDER BY name");
+        mRoomConflicts = mDatabase.connection().prepareStatement(
+                "SELECT _id FROM course_rows WHERE room_id=? AND day_of_week=? AND start_minute<? AND end_minute>?" +
+                        " AND deleted_generation IS NULL");
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTable() throws IOException {
+        mDatabase.close();
+    }
+
+    @Benchmark
+    public void queryAll(Blackhole blackhole) throws SQLException {
+        consume(mQueryAll, blackhole);
+    }
+
+    @Benchmark
+    public void queryById(Blackhole blackhole) throws SQLException {
+        mQueryById.setLong(1, randomId());
+        consume(mQueryById, blackhole);
+    }
+
+    /** The editor saving a course, every column written by id, the name alternating so the triggers have work */
+    @Benchmark
+    public int update() throws SQLException {
+        int n = mRandom.nextInt(courses);
+        return mDatabase.updateById(n + 1, n, mUpdates++ % 2 == 0 ? " (moved)" : "");
+    }
+
+    /** A word prefix every twelfth course's name starts with */
+    @Benchmark
+    public void searchFts(Blackhole blackhole) throws SQLException {
+        mSearch.setString(1, "alg*");
+        consume(mSearch, blackhole);
+    }
+
+    /** The same search as a substring scan of name, teacher and room */
+    @Benchmark
+    public void searchLike(Blackhole blackhole) throws SQLException {
+        for (int i = 1; i <= 3; i++) {
+            mSearchLike.setString(i, "%alg%");
+        }
+        consume(mSearchLike, blackhole);
+    }
+
+    /** Courses booking a room on a day over a stretch of time, through the room index */
+    @Benchmark
+    public void roomConflicts(Blackhole blackhole) throws SQLException {
+        mRoomConflicts.setLong(1, 1 + mRandom.nextInt(Math.max(1, courses / 20)));
+        mRoomConflicts.setInt(2, 1 + mRandom.nextInt(5));
+        mRoomConflicts.setInt(3, 720);
+        mRoomConflicts.setInt(4, 600);
+        consume(mRoomConflicts, blackhole);
+    }
+
+    /** courses are added to a fresh table, so their ids are 1 .. courses */
+    private long randomId() {
+        return 1 + mRandom.nextInt(courses);
+    }
+
+    private static void consume(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        ResultSet rows = query.executeQuery();
+        try {
+            int columns = rows.getMetaData().getColumnCount();
+            while (rows.next()) {
+                for (int i = 1; i <= columns; i++) {
+                    blackhole.consume(rows.getObject(i));
+                }
+            }
+        } finally {
+            rows.close();
+        }
+    }
+}
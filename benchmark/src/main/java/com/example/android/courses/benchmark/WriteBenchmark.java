@@ -0,0 +1,99 @@
+package com.example.android.courses.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts and deletes of BATCH courses at a time against a table of courses courses, which is
+ * put back the way it was between invocations. Scores are rows a second: insert is the
+ * per-row path, each course in a transaction of its own, bulkInsert one transaction for the
+ * batch, delete removes courses by id one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    /** Courses each invocation writes, big enough that the fixtures between invocations don't dominate */
+    static final int BATCH = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int courses;
+
+    private CourseDatabase mDatabase;
+
+    @Setup(Level.Trial)
+    public void createTable() throws SQLException, IOException {
+        mDatabase = new CourseDatabase(courses);
+        mDatabase.insertAll(0, courses);
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTable() throws IOException {
+        mDatabase.close();
+    }
+
+    /** back to courses rows, whatever the invocation added or removed */
+    @TearDown(Level.Invocation)
+    public void removeBatch() throws SQLException {
+        mDatabase.execute("DELETE FROM course_rows WHERE _id>" + courses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insert() throws SQLException {
+        for (int i = 0; i < BATCH; i++) {
+            mDatabase.begin();
+            mDatabase.insert(courses + i);
+            mDatabase.commit();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void bulkInsert() throws SQLException {
+        mDatabase.insertAll(courses, BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void delete(Batch batch) throws SQLException {
+        for (long id : batch.mIds) {
+            mDatabase.deleteById(id);
+        }
+    }
+
+    /** A batch of courses added before each delete invocation for it to remove */
+    @State(Scope.Benchmark)
+    public static class Batch {
+        final long[] mIds = new long[BATCH];
+
+        @Setup(Level.Invocation)
+        public void add(WriteBenchmark table) throws SQLException {
+            table.mDatabase.begin();
+            for (int i = 0; i < BATCH; i++) {
+                mIds[i] = table.mDatabase.insert(table.courses + i);//past the table's own courses
+            }
+            table.mDatabase.commit();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+-- Schema of a fresh schedule.db at version 14, every object CourseDbHelper creates except the
+-- FTS shadow tables, which the virtual table makes itself. Statements end with a line holding
+-- only ";". MigrationTest.testBenchmarkSchemaIsCurrent fails when this falls behind the
+-- helper and prints the current statements to paste here.
+CREATE VIRTUAL TABLE courses_fts USING fts4(name,teacher,room)
+;
+CREATE TABLE rooms(_id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL UNIQUE)
+;
+CREATE TABLE teachers(_id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL UNIQUE)
+;
+CREATE TABLE course_rows(_id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL,room_id INTEGER NOT NULL REFERENCES rooms(_id),teacher_id INTEGER NOT NULL REFERENCES teachers(_id),time TEXT NOT NULL,day TEXT NOT NULL,day_of_week INTEGER,start_minute INTEGER,end_minute INTEGER, deleted_generation INTEGER)
+;
+CREATE TABLE course_changes(seq INTEGER PRIMARY KEY AUTOINCREMENT,course_id INTEGER NOT NULL UNIQUE,deleted INTEGER NOT NULL DEFAULT 0)
+;
+CREATE TABLE course_deletions(_id INTEGER PRIMARY KEY AUTOINCREMENT,deleted_at INTEGER NOT NULL)
+;
+CREATE TABLE course_keys(name TEXT NOT NULL,day TEXT NOT NULL,time TEXT NOT NULL,course_id INTEGER NOT NULL,PRIMARY KEY (name,day,time))
+;
+CREATE TABLE course_stats(kind INTEGER NOT NULL,group_id INTEGER NOT NULL,course_count INTEGER NOT NULL,total_minutes INTEGER NOT NULL,PRIMARY KEY (kind,group_id))
+;
+CREATE INDEX courses_day_time ON course_rows(day,time)
+;
+CREATE INDEX courses_day_start ON course_rows(day_of_week,start_minute)
+;
+CREATE INDEX courses_name ON course_rows(name)
+;
+CREATE INDEX courses_teacher ON course_rows(teacher_id,day_of_week,start_minute)
+;
+CREATE INDEX courses_room ON course_rows(room_id,day_of_week,start_minute)
+;
+CREATE INDEX course_rows_deleted ON course_rows(deleted_generation)
+;
+CREATE VIEW courses AS SELECT course_rows._id AS _id,course_rows.name AS name,rooms.name AS room,teachers.name AS teacher,time,day,day_of_week,start_minute,end_minute FROM course_rows JOIN rooms ON rooms._id=room_id JOIN teachers ON teachers._id=teacher_id WHERE deleted_generation IS NULL
+;
+CREATE TRIGGER courses_fts_insert AFTER INSERT ON course_rows BEGIN INSERT INTO courses_fts(docid,name,teacher,room) VALUES (new._id,new.name,(SELECT name FROM teachers WHERE _id=new.teacher_id),(SELECT name FROM rooms WHERE _id=new.room_id)); END
+;
+CREATE TRIGGER courses_fts_update AFTER UPDATE OF name,teacher_id,room_id ON course_rows BEGIN UPDATE courses_fts SET name=new.name,teacher=(SELECT name FROM teachers WHERE _id=new.teacher_id),room=(SELECT name FROM rooms WHERE _id=new.room_id) WHERE docid=old._id; END
+;
+CREATE TRIGGER courses_fts_delete AFTER DELETE ON course_rows BEGIN DELETE FROM courses_fts WHERE docid=old._id; END
+;
+CREATE TRIGGER course_changes_insert AFTER INSERT ON course_rows BEGIN INSERT OR REPLACE INTO course_changes(course_id,deleted) VALUES (new._id,0); END
+;
+CREATE TRIGGER course_keys_insert AFTER INSERT ON course_rows BEGIN INSERT INTO course_keys(name,day,time,course_id) SELECT new.name,new.day,new.time,new._id WHERE new.deleted_generation IS NULL; END
+;
+CREATE TRIGGER course_keys_delete AFTER DELETE ON course_rows BEGIN DELETE FROM course_keys WHERE name=old.name AND day=old.day AND time=old.time AND course_id=old._id; END
+;
+CREATE TRIGGER course_stats_insert AFTER INSERT ON course_rows BEGIN INSERT OR IGNORE INTO course_stats SELECT 0,IFNULL(new.day_of_week,0),0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=0 AND group_id=IFNULL(new.day_of_week,0) AND new.deleted_generation IS NULL; INSERT OR IGNORE INTO course_stats SELECT 1,new.teacher_id,0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=1 AND group_id=new.teacher_id AND new.deleted_generation IS NULL; INSERT OR IGNORE INTO course_stats SELECT 2,new.room_id,0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=2 AND group_id=new.room_id AND new.deleted_generation IS NULL; END
+;
+CREATE TRIGGER course_stats_delete AFTER DELETE ON course_rows BEGIN UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=0 AND group_id=IFNULL(old.day_of_week,0) AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=0 AND group_id=IFNULL(old.day_of_week,0) AND course_count=0; UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=1 AND group_id=old.teacher_id AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=1 AND group_id=old.teacher_id AND course_count=0; UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=2 AND group_id=old.room_id AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=2 AND group_id=old.room_id AND course_count=0; END
+;
+CREATE TRIGGER course_changes_update AFTER UPDATE OF name,day,time,room_id,teacher_id,day_of_week,start_minute,end_minute ON course_rows BEGIN INSERT OR REPLACE INTO course_changes(course_id,deleted) VALUES (new._id,0); END
+;
+CREATE TRIGGER course_stats_update AFTER UPDATE OF room_id,teacher_id,day_of_week,start_minute,end_minute ON course_rows BEGIN UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=0 AND group_id=IFNULL(old.day_of_week,0) AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=0 AND group_id=IFNULL(old.day_of_week,0) AND course_count=0; UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=1 AND group_id=old.teacher_id AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=1 AND group_id=old.teacher_id AND course_count=0; UPDATE course_stats SET course_count=course_count-1,total_minutes=total_minutes-IFNULL(old.end_minute-old.start_minute,0) WHERE kind=2 AND group_id=old.room_id AND old.deleted_generation IS NULL; DELETE FROM course_stats WHERE kind=2 AND group_id=old.room_id AND course_count=0; INSERT OR IGNORE INTO course_stats SELECT 0,IFNULL(new.day_of_week,0),0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=0 AND group_id=IFNULL(new.day_of_week,0) AND new.deleted_generation IS NULL; INSERT OR IGNORE INTO course_stats SELECT 1,new.teacher_id,0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=1 AND group_id=new.teacher_id AND new.deleted_generation IS NULL; INSERT OR IGNORE INTO course_stats SELECT 2,new.room_id,0,0 WHERE new.deleted_generation IS NULL; UPDATE course_stats SET course_count=course_count+1,total_minutes=total_minutes+IFNULL(new.end_minute-new.start_minute,0) WHERE kind=2 AND group_id=new.room_id AND new.deleted_generation IS NULL; END
+;
+CREATE TRIGGER course_keys_update AFTER UPDATE OF name,day,time ON course_rows WHEN old.name IS NOT new.name OR old.day IS NOT new.day OR old.time IS NOT new.time BEGIN DELETE FROM course_keys WHERE name=old.name AND day=old.day AND time=old.time AND course_id=old._id; INSERT INTO course_keys(name,day,time,course_id) SELECT new.name,new.day,new.time,new._id WHERE new.deleted_generation IS NULL; END
+;
+CREATE TRIGGER course_changes_delete AFTER DELETE ON course_rows WHEN old.deleted_generation IS NULL BEGIN INSERT OR REPLACE INTO course_changes(course_id,deleted) VALUES (old._id,1); END
+;
@@ -0,0 +1,20 @@
+-- What a soft delete does after hiding its rows under a new generation, the statements of
+-- CourseDbHelper.generationBookkeeping(false), each taking the generation as ?1. Statements end
+-- with a line holding only ";". MigrationTest.testBenchmarkSoftDeleteIsCurrent fails when this
+-- falls behind the helper and prints the current statements to paste here.
+DELETE FROM course_keys WHERE rowid IN (SELECT course_keys.rowid FROM course_rows JOIN course_keys ON course_keys.name=course_rows.name AND course_keys.day=course_rows.day AND course_keys.time=course_rows.time WHERE course_rows.deleted_generation=?1 AND course_keys.course_id=course_rows._id)
+;
+UPDATE course_stats SET course_count=course_count-(SELECT COUNT(*) FROM course_rows WHERE deleted_generation=?1 AND IFNULL(day_of_week,0)=course_stats.group_id),total_minutes=total_minutes-(SELECT SUM(IFNULL(end_minute-start_minute,0)) FROM course_rows WHERE deleted_generation=?1 AND IFNULL(day_of_week,0)=course_stats.group_id) WHERE kind=0 AND group_id IN (SELECT IFNULL(day_of_week,0) FROM course_rows WHERE deleted_generation=?1)
+;
+DELETE FROM course_stats WHERE kind=0 AND group_id IN (SELECT IFNULL(day_of_week,0) FROM course_rows WHERE deleted_generation=?1) AND course_count=0
+;
+UPDATE course_stats SET course_count=course_count-(SELECT COUNT(*) FROM course_rows WHERE teacher_id=course_stats.group_id AND +deleted_generation=?1),total_minutes=total_minutes-(SELECT SUM(IFNULL(end_minute-start_minute,0)) FROM course_rows WHERE teacher_id=course_stats.group_id AND +deleted_generation=?1) WHERE kind=1 AND group_id IN (SELECT teacher_id FROM course_rows WHERE deleted_generation=?1)
+;
+DELETE FROM course_stats WHERE kind=1 AND group_id IN (SELECT teacher_id FROM course_rows WHERE deleted_generation=?1) AND course_count=0
+;
+UPDATE course_stats SET course_count=course_count-(SELECT COUNT(*) FROM course_rows WHERE room_id=course_stats.group_id AND +deleted_generation=?1),total_minutes=total_minutes-(SELECT SUM(IFNULL(end_minute-start_minute,0)) FROM course_rows WHERE room_id=course_stats.group_id AND +deleted_generation=?1) WHERE kind=2 AND group_id IN (SELECT room_id FROM course_rows WHERE deleted_generation=?1)
+;
+DELETE FROM course_stats WHERE kind=2 AND group_id IN (SELECT room_id FROM course_rows WHERE deleted_generation=?1) AND course_count=0
+;
+INSERT OR REPLACE INTO course_changes(course_id,deleted) SELECT _id,1 FROM course_rows WHERE deleted_generation=?1 ORDER BY _id
+;